@@ -0,0 +1,161 @@
+package org.example;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the Board and AI hot paths over a fixed corpus of positions.
+ * The corpus is built from seeded random playouts, so it is the same in every release;
+ * every operation is applied to all the positions of the chosen phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private static final int CORPUS_SIZE = 64;
+
+    private static final long CORPUS_SEED = 2024;
+
+    /**
+     * Game phase of the corpus: the amount of random moves played from the start position.
+     */
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    private Board[] boards;
+
+    private char[] players;
+
+    private final MoveList moves = new MoveList();
+
+    private final PatternEvaluator evaluator = PatternEvaluator.defaults();
+
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int plies = switch (phase) {
+            case "opening" -> 8;
+            case "midgame" -> 30;
+            default -> 50;
+        };
+        boards = new Board[CORPUS_SIZE];
+        players = new char[CORPUS_SIZE];
+        var corpusRandom = new SplittableRandom(CORPUS_SEED + plies);
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            do {
+                boards[k] = new Board();
+                players[k] = SearchScaling.randomPlayout(boards[k], Board.BLACK_CHIP, plies, corpusRandom);
+            } while (boards[k].movesMask(players[k]) == 0);
+        }
+        random = new SplittableRandom(CORPUS_SEED);
+    }
+
+    @Benchmark
+    public void movesMask(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            blackhole.consume(boards[k].movesMask(players[k]));
+        }
+    }
+
+    @Benchmark
+    public void possibleMovesList(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            blackhole.consume(boards[k].possibleMoves(players[k], moves).size());
+        }
+    }
+
+    @Benchmark
+    public void possibleMovesArrayList(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            blackhole.consume(boards[k].possibleMoves(players[k]));
+        }
+    }
+
+    @Benchmark
+    public void makeUnmakeAllMoves(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            Board board = boards[k];
+            for (long m = board.movesMask(players[k]); m != 0; m &= m - 1) {
+                blackhole.consume(board.makeMove(Long.numberOfTrailingZeros(m), players[k]));
+                board.unmakeMove();
+            }
+        }
+    }
+
+    @Benchmark
+    public void changeCellsAndUndo(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            Board board = boards[k];
+            int square = Long.numberOfTrailingZeros(board.movesMask(players[k]));
+            board.changeCells(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, players[k]);
+            blackhole.consume(board.undoMove(players[k]));
+        }
+    }
+
+    @Benchmark
+    public void countChips(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            blackhole.consume(boards[k].countChips(Board.BLACK_CHIP) - boards[k].countChips(Board.WHITE_CHIP));
+        }
+    }
+
+    @Benchmark
+    public void greedyEvaluateAllMoves(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            Board board = boards[k];
+            for (long m = board.movesMask(players[k]); m != 0; m &= m - 1) {
+                int square = Long.numberOfTrailingZeros(m);
+                blackhole.consume(AI.evaluate(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, board, players[k]));
+            }
+        }
+    }
+
+    @Benchmark
+    public void searchEvaluate(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            blackhole.consume(evaluator.evaluate(boards[k], players[k]));
+        }
+    }
+
+    @Benchmark
+    public void randomPlayoutToEnd(Blackhole blackhole) {
+        for (int k = 0; k < CORPUS_SIZE; ++k) {
+            Board board = new Board(boards[k]);
+            char player = players[k];
+            int passes = 0;
+            while (passes < 2) {
+                long m = board.movesMask(player);
+                if (m == 0) {
+                    ++passes;
+                } else {
+                    passes = 0;
+                    for (int skip = random.nextInt(Long.bitCount(m)); skip > 0; --skip) {
+                        m &= m - 1;
+                    }
+                    board.makeMove(Long.numberOfTrailingZeros(m), player);
+                }
+                player = Board.opponent(player);
+            }
+            blackhole.consume(board.countChips(Board.BLACK_CHIP));
+        }
+    }
+}
@@ -13,36 +13,42 @@ public class AI implements IEvaluatable {
      * @return the evaluation of the move.
      */
     static double evaluate(int i, int j, Board board, char curPlayer) {
+        long flipped = board.makeMove(i * Board.BOARD_SIZE + j, curPlayer);
+        board.unmakeMove();
+        double sum = Long.bitCount(flipped);
         double ss = 0;
-        double sum = 0;
-        var tmp_grid = new char[Board.BOARD_SIZE][];
-        for (int k = 0; k < Board.BOARD_SIZE; ++k) {
-            tmp_grid[k] = board.grid[k].clone();
-        }
-        Board board_copy = new Board(tmp_grid);
-        board_copy.changeCells(i, j, curPlayer);
-        for (int k = 0; k < Board.BOARD_SIZE; ++k) {
-            for (int l = 0; l < Board.BOARD_SIZE; ++l) {
-                if (board.grid[k][l] != board_copy.grid[k][l]) {
-                    if (i == k && l == j) {
-                        if (i == 0 || j == 0 || i == 7 || j == 7) {
-                            if (i == 0 && j == 0 || i == 0 && j == 7 || i == 7 && j == 0 || i == 7 && j == 7) {
-                                ss = 0.8;
-                            } else {
-                                ss = 0.4;
-                            }
-                        }
-                    } else {
-                        if (i == 0 || j == 0 || i == 7 || j == 7) {
-                            sum += 2;
-                        } else {
-                            ++sum;
-                        }
-                    }
-                }
+        if (i == 0 || j == 0 || i == 7 || j == 7) {
+            sum *= 2;
+            if (i == 0 && j == 0 || i == 0 && j == 7 || i == 7 && j == 0 || i == 7 && j == 7) {
+                ss = 0.8;
+            } else {
+                ss = 0.4;
             }
         }
         sum += ss;
         return sum;
     }
+
+    /**
+     * Chooses the first move with the maximal evaluation.
+     * @param board the field on which the game is played.
+     * @param curPlayer the color of current player.
+     * @return the square index of the chosen move or Board.PASS.
+     */
+    @Override
+    public int bestMove(Board board, char curPlayer) {
+        long moves = board.movesMask(curPlayer);
+        int best = Board.PASS;
+        double maxx = -10e9;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            double sum = evaluate(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, board, curPlayer);
+            if (sum > maxx) {
+                maxx = sum;
+                best = square;
+            }
+            moves &= moves - 1;
+        }
+        return best;
+    }
 }
@@ -0,0 +1,254 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Analyzes many positions in parallel: best move, score and mobility of each.
+ * A position is a line of 64 squares row by row ('b' black, 'w' white, '-' or '.' empty),
+ * a space and the color to move, for example the start position:
+ * "---------------------------wb------bw--------------------------- b".
+ * Positions are searched on a fixed pool of threads; at most a window of them is in flight,
+ * so memory does not depend on the amount of positions, and the results come out in input order.
+ * Usage: BatchAnalyzer [positionsFile|-] [millisPerPosition] [threads] [maxDepth],
+ * writes CSV lines "index,move,score,mobility" (or "index,error,message") to the standard output.
+ */
+public class BatchAnalyzer {
+
+    static final String CSV_HEADER = "index,move,score,mobility";
+
+    /**
+     * Analysis of one position.
+     * @param index the number of the position in the input (blank lines not counted), from 0.
+     * @param move the best move or Board.PASS.
+     * @param score the score from the point of view of the player to move (see SearchAI).
+     * @param mobility the amount of moves of the player to move.
+     * @param error the reason the position could not be analyzed or null.
+     */
+    record Result(long index, int move, int score, int mobility, String error) {
+
+        /**
+         * @return the CSV line of the result.
+         */
+        String toCsv() {
+            if (error != null) {
+                return index + ",error," + error.replace(',', ';');
+            }
+            return index + "," + SearchReport.squareName(move) + "," + score + "," + mobility;
+        }
+    }
+
+    private final int threads;
+
+    private final int window;
+
+    private final ThreadLocal<SearchAI> engines;
+
+    /**
+     * BatchAnalyzer constructor.
+     * @param threads the amount of worker threads.
+     * @param millisPerPosition the search time of one position.
+     * @param maxDepth the maximal search depth.
+     */
+    BatchAnalyzer(int threads, long millisPerPosition, int maxDepth) {
+        this.threads = threads;
+        this.window = threads * 16;
+        this.engines = ThreadLocal.withInitial(() -> new SearchAI(millisPerPosition, Long.MAX_VALUE, maxDepth, 16, 1, 14));
+    }
+
+    /**
+     * Analyzes the positions.
+     * @param positions the position lines; blank lines are skipped.
+     * @param results receives the results in input order, on the calling thread.
+     * @return the amount of positions analyzed.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    long analyze(Iterator<String> positions, Consumer<Result> results) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // Result of position i waits in slot i % window until all the positions before it are passed on.
+        var done = new Result[window];
+        long submitted = 0;
+        long next = 0;
+        try {
+            while (positions.hasNext()) {
+                String line = positions.next();
+                if (line.isBlank()) {
+                    continue;
+                }
+                while (submitted - next >= window) {
+                    next = drain(done, next, submitted, results, true);
+                }
+                long index = submitted++;
+                pool.execute(() -> {
+                    Result result;
+                    Throwable failure = null;
+                    try {
+                        result = analyze(index, line);
+                    } catch (Throwable ex) {
+                        // Every position must get a result, or the positions after it would never be passed on.
+                        result = new Result(index, Board.PASS, 0, 0, ex.toString());
+                        failure = ex;
+                    }
+                    synchronized (done) {
+                        done[(int) (index % window)] = result;
+                        done.notifyAll();
+                    }
+                    if (failure instanceof Error error) {
+                        throw error;
+                    }
+                });
+                next = drain(done, next, submitted, results, false);
+            }
+            while (next < submitted) {
+                next = drain(done, next, submitted, results, true);
+            }
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return submitted;
+    }
+
+    /**
+     * Passes on the finished results that are next in input order.
+     * @param done the results by index modulo the window.
+     * @param next the index of the next result to pass on.
+     * @param submitted the amount of positions submitted.
+     * @param results the receiver.
+     * @param wait true to wait for the next result if it is not finished yet.
+     * @return the index of the next result to pass on.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    private long drain(Result[] done, long next, long submitted, Consumer<Result> results, boolean wait)
+            throws InterruptedException {
+        while (next < submitted) {
+            Result result;
+            synchronized (done) {
+                int slot = (int) (next % window);
+                while (wait && done[slot] == null) {
+                    done.wait();
+                }
+                result = done[slot];
+                if (result == null) {
+                    return next;
+                }
+                done[slot] = null;
+            }
+            results.accept(result);
+            wait = false;
+            ++next;
+        }
+        return next;
+    }
+
+    /**
+     * Analyzes one position on the calling worker thread.
+     * @param index the number of the position.
+     * @param line the position line.
+     * @return the result.
+     */
+    private Result analyze(long index, String line) {
+        char player;
+        Board board;
+        try {
+            player = parseSide(line);
+            board = parse(line);
+        } catch (IllegalArgumentException ex) {
+            return new Result(index, Board.PASS, 0, 0, ex.getMessage());
+        }
+        SearchAI engine = engines.get();
+        long moves = board.movesMask(player);
+        if (moves == 0) {
+            char opponent = Board.opponent(player);
+            if (board.movesMask(opponent) == 0) {
+                return new Result(index, Board.PASS, SearchAI.finalScore(board, player), 0, null);
+            }
+            engine.bestMove(board, opponent);
+            return new Result(index, Board.PASS, -engine.lastScore(), 0, null);
+        }
+        int move = engine.bestMove(board, player);
+        return new Result(index, move, engine.lastScore(), Long.bitCount(moves), null);
+    }
+
+    /**
+     * Reads the squares of a position line.
+     * @param line the position line.
+     * @return the board.
+     * @throws IllegalArgumentException if the line is not a position.
+     */
+    static Board parse(String line) {
+        if (line.length() < Board.BOARD_SIZE * Board.BOARD_SIZE) {
+            throw new IllegalArgumentException("A position needs 64 squares: " + line);
+        }
+        char[][] grid = new char[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        for (int square = 0; square < Board.BOARD_SIZE * Board.BOARD_SIZE; ++square) {
+            char c = line.charAt(square);
+            grid[square / Board.BOARD_SIZE][square % Board.BOARD_SIZE] = switch (c) {
+                case 'b', 'B' -> Board.BLACK_CHIP;
+                case 'w', 'W' -> Board.WHITE_CHIP;
+                case '-', '.' -> Board.EMPTY_CELL;
+                default -> throw new IllegalArgumentException("Unknown square '" + c + "' in: " + line);
+            };
+        }
+        return new Board(grid);
+    }
+
+    /**
+     * Reads the color to move of a position line.
+     * @param line the position line.
+     * @return the color to move.
+     * @throws IllegalArgumentException if the line has no valid color.
+     */
+    static char parseSide(String line) {
+        String side = line.length() > 64 ? line.substring(64).trim() : "";
+        if (side.equals("b") || side.equals("w")) {
+            return side.charAt(0);
+        }
+        throw new IllegalArgumentException("The color to move must be 'b' or 'w': " + line);
+    }
+
+    /**
+     * Writes a position line.
+     * @param board the position.
+     * @param player the color to move.
+     * @return the position line.
+     */
+    static String encode(Board board, char player) {
+        return Position.of(board, player).toString();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String file = args.length > 0 ? args[0] : "-";
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        var analyzer = new BatchAnalyzer(threads, millis, maxDepth);
+        var out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        long start = System.nanoTime();
+        long count;
+        try (BufferedReader in = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(file))) {
+            out.println(CSV_HEADER);
+            count = analyzer.analyze(in.lines().iterator(), result -> out.println(result.toCsv()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            out.flush();
+        }
+        System.err.printf("%d positions in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -1,6 +1,8 @@
 package org.example;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 
 /**
@@ -10,16 +12,78 @@ public class Board {
 
     protected static final int BOARD_SIZE = 8;
 
-    private static final char EMPTY_CELL = ' ';
+    protected static final char EMPTY_CELL = ' ';
 
     protected static final char BLACK_CHIP = 'b';
 
     protected static final char WHITE_CHIP = 'w';
 
-    private static final char POSSIBLE_CHIP = 'p';
+    /**
+     * Square index used to record a pass in the undo stack.
+     */
+    static final int PASS = 64;
+
+    /**
+     * Squares outside the first and the last column: the masks cut off chips
+     * wrapping around the board edge when a bitboard is shifted (square index is i * 8 + j).
+     */
+    private static final long NOT_A_FILE = 0xfefefefefefefefeL;
+
+    private static final long NOT_H_FILE = 0x7f7f7f7f7f7f7f7fL;
+
+    /**
+     * Zobrist keys of the chips on every square, of a flip on every square and of white to move.
+     */
+    private static final long[] BLACK_KEYS = new long[BOARD_SIZE * BOARD_SIZE];
+
+    private static final long[] WHITE_KEYS = new long[BOARD_SIZE * BOARD_SIZE];
+
+    private static final long[] FLIP_KEYS = new long[BOARD_SIZE * BOARD_SIZE];
+
+    private static final long WHITE_TO_MOVE_KEY;
 
+    static {
+        var random = new SplittableRandom(BOARD_SIZE);
+        for (int square = 0; square < BLACK_KEYS.length; ++square) {
+            BLACK_KEYS[square] = random.nextLong();
+            WHITE_KEYS[square] = random.nextLong();
+            FLIP_KEYS[square] = BLACK_KEYS[square] ^ WHITE_KEYS[square];
+        }
+        WHITE_TO_MOVE_KEY = random.nextLong();
+    }
+
+    /**
+     * Display copy of the position, kept in sync with the bitboards.
+     */
     protected final char[][] grid;
 
+    private long black;
+
+    private long white;
+
+    /**
+     * Zobrist key of the chips, updated with every move.
+     */
+    private long key;
+
+    /**
+     * Base-3 indices of the evaluation pattern instances (see Patterns), updated with every move.
+     */
+    private final int[] patternIndex = new int[Patterns.INSTANCES];
+
+    /**
+     * Undo stack: the square, the player, the flipped chips and the previous key of every move made.
+     */
+    private int[] undoSquares = new int[128];
+
+    private char[] undoPlayers = new char[128];
+
+    private long[] undoFlips = new long[128];
+
+    private long[] undoKeys = new long[128];
+
+    private int undoSize;
+
     /**
      * Board constructor.
      */
@@ -34,6 +98,10 @@ public class Board {
         grid[4][4] = WHITE_CHIP;
         grid[3][4] = BLACK_CHIP;
         grid[4][3] = BLACK_CHIP;
+        black = bit(3 * BOARD_SIZE + 4) | bit(4 * BOARD_SIZE + 3);
+        white = bit(3 * BOARD_SIZE + 3) | bit(4 * BOARD_SIZE + 4);
+        key = computeKey();
+        computePatterns();
     }
 
     /**
@@ -42,43 +110,46 @@ public class Board {
      */
     Board(char[][] grid) {
         this.grid = grid;
-    }
-
-    /**
-     * Displays bord in the console
-     */
-    void displayBoard() {
-        System.out.println("---------------------------------");
         for (int i = 0; i < BOARD_SIZE; ++i) {
-            System.out.print("| ");
             for (int j = 0; j < BOARD_SIZE; ++j) {
-                System.out.print(grid[i][j] + " | ");
+                if (grid[i][j] == BLACK_CHIP) {
+                    black |= bit(i * BOARD_SIZE + j);
+                } else if (grid[i][j] == WHITE_CHIP) {
+                    white |= bit(i * BOARD_SIZE + j);
+                }
             }
-            System.out.println("\n---------------------------------");
         }
+        key = computeKey();
+        computePatterns();
     }
 
     /**
-     * displayBoard overload. Displays board with possible moves.
-     * @param moves list of possible moves.
+     * Board constructor on bitboards.
+     * @param black the black chips.
+     * @param white the white chips (no square in common with black).
      */
-    void displayBoard(ArrayList<Integer> moves) {
-        var tmp_grid = new char[BOARD_SIZE][];
-        for (int i = 0; i < BOARD_SIZE; ++i) {
-            tmp_grid[i] = grid[i].clone();
-        }
-        for (int i = 0; i < moves.size(); i += 2) {
-            tmp_grid[moves.get(i)][moves.get((i + 1))] = POSSIBLE_CHIP;
-        }
-        System.out.println("\n\nPossible moves are illustrated with the letter p");
-        System.out.println("---------------------------------");
+    Board(long black, long white) {
+        this.black = black;
+        this.white = white;
+        grid = new char[BOARD_SIZE][BOARD_SIZE];
+        syncGrid(-1L);
+        key = computeKey();
+        computePatterns();
+    }
+
+    /**
+     * Copy constructor: copies the position, but not the undo stack.
+     * @param other the board to copy.
+     */
+    Board(Board other) {
+        grid = new char[BOARD_SIZE][];
         for (int i = 0; i < BOARD_SIZE; ++i) {
-            System.out.print("| ");
-            for (int j = 0; j < BOARD_SIZE; ++j) {
-                System.out.print(tmp_grid[i][j] + " | ");
-            }
-            System.out.println("\n---------------------------------");
+            grid[i] = other.grid[i].clone();
         }
+        black = other.black;
+        white = other.white;
+        key = other.key;
+        System.arraycopy(other.patternIndex, 0, patternIndex, 0, patternIndex.length);
     }
 
     /**
@@ -88,496 +159,470 @@ public class Board {
      */
     ArrayList<Integer> possibleMoves(char curPlayer) {
         var moves = new ArrayList<Integer>(4);
-        for (int i = 0; i < BOARD_SIZE; ++i) {
-            for (int j = 0; j < BOARD_SIZE; ++j) {
-                if (isValid(i, j, curPlayer)) {
-                    moves.add(i);
-                    moves.add(j);
-                }
-            }
+        long mask = movesMask(curPlayer);
+        while (mask != 0) {
+            int square = Long.numberOfTrailingZeros(mask);
+            moves.add(square / BOARD_SIZE);
+            moves.add(square % BOARD_SIZE);
+            mask &= mask - 1;
         }
         return moves;
     }
 
     /**
-     * Checks if the move is valid.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
+     * Finds all the possible moves without allocating.
      * @param curPlayer the color of the current player.
-     * @return true, if the move is possible.
+     * @param moves the list to refill with the possible moves.
+     * @return the same list.
      */
-    private boolean isValid(int i, int j, char curPlayer) {
-        char chip;
-        if (grid[i][j] != EMPTY_CELL)
-            return false;
-        if (curPlayer == BLACK_CHIP) {
-            chip = WHITE_CHIP;
-        } else {
-            chip = BLACK_CHIP;
-        }
-        if (i != 0) {
-            if (grid[i - 1][j] == chip && goUp(i, j, curPlayer)) {
-                return true;
-            }
-            if (j != 7) {
-                if (grid[i - 1][j + 1] == chip && goUpRight(i, j, curPlayer)) {
-                    return true;
-                }
-            }
-        }
-        if (j != 0) {
-            if (grid[i][j - 1] == chip && goLeft(i, j, curPlayer)) {
-                return true;
-            }
-            if (i != 0) {
-                if (grid[i - 1][j - 1] == chip && goUpLeft(i, j, curPlayer)) {
-                    return true;
-                }
-            }
-        }
-        if (i != 7) {
-            if (grid[i + 1][j] == chip && goDown(i, j, curPlayer)) {
-                return true;
-            }
-            if (j != 0) {
-                if (grid[i + 1][j - 1] == chip && goDownLeft(i, j, curPlayer)) {
-                    return true;
-                }
-            }
-        }
-        if (j != 7) {
-            if (grid[i][j + 1] == chip && goRight(i, j, curPlayer)) {
-                return true;
-            }
-            if (i != 7) {
-                return grid[i + 1][j + 1] == chip && goDownRight(i, j, curPlayer);
-            }
-        }
-        return false;
+    MoveList possibleMoves(char curPlayer, MoveList moves) {
+        moves.fill(movesMask(curPlayer));
+        return moves;
     }
 
     /**
-     * Scans to the right of the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip on the right of the chosen cell.
+     * Finds all the possible moves as a bit mask.
+     * @param curPlayer the color of the current player.
+     * @return the mask with a bit set for every legal square (bit i * 8 + j).
      */
-    private boolean goRight(int i, int j, char chip) {
-        for (int k = j + 2; k < BOARD_SIZE; ++k) {
-            if (grid[i][k] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[i][k] == chip) {
-                return true;
-            }
-        }
-        return false;
+    long movesMask(char curPlayer) {
+        return curPlayer == BLACK_CHIP ? generateMoves(black, white) : generateMoves(white, black);
     }
 
     /**
-     * Scans to the left and down from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip under and in the left of the chosen cell.
-     */
-    private boolean goDownLeft(int i, int j, char chip) {
-        int temp_j = j - 1;
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            if (temp_j < 1)
-                continue;
-            --temp_j;
-            if (grid[k][temp_j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][temp_j] == chip) {
-                return true;
-            }
-        }
-        return false;
+     *Checks if the board is filled up.
+     * @return true, if the board has no empty cells.
+     */
+    boolean isFull() {
+        return (black | white) == -1L;
     }
 
     /**
-     * Scans down from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip under the chosen cell.
+     * Checks if the game is over: neither player can move, whoever is to move and however many passes led here.
+     * Nothing is kept incrementally: the check costs up to two move generations (a few hundred shifts, no scan
+     * of the grid). A caller that has already generated the moves of the player to move only needs this
+     * when he has none.
+     * @return true, if no player has a possible move.
      */
-    private boolean goDown(int i, int j, char chip) {
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            if (grid[k][j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][j] == chip) {
-                return true;
-            }
-        }
-        return false;
+    boolean isTerminal() {
+        return (black | white) == -1L || generateMoves(black, white) == 0 && generateMoves(white, black) == 0;
     }
 
     /**
-     * Scans to the left of the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip on the left of the chosen cell.
+     * @return the mask of the empty squares.
      */
-    private boolean goLeft(int i, int j, char chip) {
-        for (int k = j - 2; k > -1; --k) {
-            if (grid[i][k] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[i][k] == chip) {
-                return true;
-            }
-        }
-        return false;
+    long emptyMask() {
+        return ~(black | white);
     }
 
     /**
-     * Scans to the right and up from the chosen cell.
+     * Function that implements move logic (place a chip and change opponent's)
      * @param i the row of the chosen cell.
      * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip above and in the right of the chosen cell.
-     */
-    private boolean goUpRight(int i, int j, char chip) {
-        int temp_j = j + 1;
-        for (int k = i - 2; k > -1; --k) {
-            if (temp_j > 6)
-                continue;
-            ++temp_j;
-            if (grid[k][temp_j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][temp_j] == chip) {
-                return true;
-            }
-        }
-        return false;
+     * @param curPlayer the color of the current player.
+     */
+    void changeCells(int i, int j, char curPlayer) {
+        int square = i * BOARD_SIZE + j;
+        syncGrid(makeMove(square, curPlayer) | bit(square));
     }
 
     /**
-     * Scans up from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip above the chosen cell.
+     * Makes the move on the bitboards and pushes it to the undo stack.
+     * The grid is not touched, so a search that unmakes all its moves leaves it valid.
+     * @param square the square index (i * 8 + j) or PASS.
+     * @param curPlayer the color of the current player.
+     * @return the mask of flipped chips.
      */
-    private boolean goUp(int i, int j, char chip) {
-        for (int k = i - 2; k > -1; --k) {
-            if (grid[k][j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][j] == chip) {
-                return true;
-            }
-        }
-        return false;
+    long makeMove(int square, char curPlayer) {
+        if (undoSize == undoSquares.length) {
+            undoSquares = Arrays.copyOf(undoSquares, undoSize * 2);
+            undoPlayers = Arrays.copyOf(undoPlayers, undoSize * 2);
+            undoFlips = Arrays.copyOf(undoFlips, undoSize * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoSize * 2);
+        }
+        undoSquares[undoSize] = square;
+        undoPlayers[undoSize] = curPlayer;
+        undoKeys[undoSize] = key;
+        long flipped = 0;
+        if (square != PASS) {
+            long placed = bit(square);
+            if (curPlayer == BLACK_CHIP) {
+                flipped = flips(black, white, square);
+                black |= flipped | placed;
+                white &= ~flipped;
+                key ^= BLACK_KEYS[square];
+            } else {
+                flipped = flips(white, black, square);
+                white |= flipped | placed;
+                black &= ~flipped;
+                key ^= WHITE_KEYS[square];
+            }
+            for (long f = flipped; f != 0; f &= f - 1) {
+                key ^= FLIP_KEYS[Long.numberOfTrailingZeros(f)];
+            }
+            updatePatterns(square, flipped, curPlayer, 1);
+        }
+        undoFlips[undoSize] = flipped;
+        ++undoSize;
+        return flipped;
     }
 
     /**
-     * Scans to the right and down from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip under and in the right of the chosen cell.
-     */
-    private boolean goDownRight(int i, int j, char chip) {
-        int temp_j = j + 1;
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            if (temp_j > 6)
-                continue;
-            ++temp_j;
-            if (grid[k][temp_j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][temp_j] == chip) {
-                return true;
-            }
+     * Takes back the last move made with makeMove (or changeCells) on the bitboards.
+     * @return the mask of squares that changed.
+     */
+    long unmakeMove() {
+        --undoSize;
+        key = undoKeys[undoSize];
+        int square = undoSquares[undoSize];
+        if (square == PASS) {
+            return 0;
+        }
+        long flipped = undoFlips[undoSize];
+        long placed = bit(square);
+        updatePatterns(square, flipped, undoPlayers[undoSize], -1);
+        if (undoPlayers[undoSize] == BLACK_CHIP) {
+            black &= ~(flipped | placed);
+            white |= flipped;
+        } else {
+            white &= ~(flipped | placed);
+            black |= flipped;
         }
-        return false;
+        return flipped | placed;
     }
 
     /**
-     * Scans to the left and up from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param chip the color of the required chip.
-     * @return true, if there is players chip above and in the left of the chosen cell.
-     */
-    boolean goUpLeft(int i, int j, char chip) {
-        int temp_j = j - 1;
-        for (int k = i - 2; k > -1; --k) {
-            if (temp_j < 1)
-                continue;
-            --temp_j;
-            if (grid[k][temp_j] == EMPTY_CELL) {
-                return false;
-            }
-            if (grid[k][temp_j] == chip) {
-                return true;
+     * Adds a move to the pattern indices or takes it back.
+     * The placed chip adds 1 (black) or 2 (white) times the square's power of 3, a flip changes the digit by one.
+     * @param square the placed chip.
+     * @param flipped the flipped chips.
+     * @param curPlayer the color of the player who made the move.
+     * @param direction 1 to make the move, -1 to take it back.
+     */
+    private void updatePatterns(int square, long flipped, char curPlayer, int direction) {
+        int placed = direction * (curPlayer == BLACK_CHIP ? 1 : 2);
+        int flip = direction * (curPlayer == BLACK_CHIP ? -1 : 1);
+        int[] instances = Patterns.SQUARE_INSTANCES[square];
+        int[] powers = Patterns.SQUARE_POWERS[square];
+        for (int k = 0; k < instances.length; ++k) {
+            patternIndex[instances[k]] += placed * powers[k];
+        }
+        for (long f = flipped; f != 0; f &= f - 1) {
+            int flippedSquare = Long.numberOfTrailingZeros(f);
+            instances = Patterns.SQUARE_INSTANCES[flippedSquare];
+            powers = Patterns.SQUARE_POWERS[flippedSquare];
+            for (int k = 0; k < instances.length; ++k) {
+                patternIndex[instances[k]] += flip * powers[k];
             }
         }
-        return false;
     }
 
     /**
-     *Checks if the board is filled up.
-     * @return true, if the board has no empty cells.
+     * @param instance the pattern instance.
+     * @return its current base-3 index.
      */
-    boolean isFull() {
-        for (int i = 0; i < BOARD_SIZE; ++i) {
-            for (int j = 0; j < BOARD_SIZE; ++j) {
-                if (grid[i][j] == EMPTY_CELL)
-                    return false;
-            }
+    int patternIndex(int instance) {
+        return patternIndex[instance];
+    }
+
+    /**
+     * Computes the pattern indices from scratch.
+     */
+    private void computePatterns() {
+        for (int instance = 0; instance < patternIndex.length; ++instance) {
+            patternIndex[instance] = Patterns.index(instance, black, white);
         }
-        return true;
     }
 
     /**
-     * Function that implements move logic (place a chip and change opponent's)
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * Takes back the moves up to and including the last move of the player, so it is his turn again.
+     * @param curPlayer the color of the player who wants to undo his move.
+     * @return false, if the player has not made any move yet.
      */
-    void changeCells(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        char chip;
-        if (curPlayer == BLACK_CHIP) {
-            chip = WHITE_CHIP;
-        } else {
-            chip = BLACK_CHIP;
+    boolean undoMove(char curPlayer) {
+        int last = undoSize - 1;
+        while (last >= 0 && (undoPlayers[last] != curPlayer || undoSquares[last] == PASS)) {
+            --last;
         }
-        if (i != 0) {
-            if (grid[i - 1][j] == chip) {
-                changeUp(i, j, curPlayer);
-            }
-            if (j != 7) {
-                if (grid[i - 1][j + 1] == chip) {
-                    changeUpRight(i, j, curPlayer);
-                }
-            }
+        if (last < 0) {
+            return false;
         }
-        if (j != 0) {
-            if (grid[i][j - 1] == chip) {
-                changeLeft(i, j, curPlayer);
-            }
-            if (i != 0) {
-                if (grid[i - 1][j - 1] == chip) {
-                    ChangeUpLeft(i, j, curPlayer);
-                }
-            }
+        long changed = 0;
+        while (undoSize > last) {
+            changed |= unmakeMove();
         }
-        if (i != 7) {
-            if (grid[i + 1][j] == chip) {
-                changeDown(i, j, curPlayer);
-            }
-            if (j != 0) {
-                if (grid[i + 1][j - 1] == chip) {
-                    ChangeDownLeft(i, j, curPlayer);
-                }
-            }
+        syncGrid(changed);
+        return true;
+    }
+
+    /**
+     * Zobrist key of the position with the side to move.
+     * @param sideToMove the color of the player to move.
+     * @return the 64-bit hash of the position.
+     */
+    long zobristKey(char sideToMove) {
+        return sideToMove == WHITE_CHIP ? key ^ WHITE_TO_MOVE_KEY : key;
+    }
+
+    /**
+     * Key of the position that is the same for all its symmetric images.
+     * @param sideToMove the color of the player to move.
+     * @return the canonical 64-bit key.
+     */
+    long canonicalKey(char sideToMove) {
+        return Symmetry.canonicalKey(chips(sideToMove), chips(opponent(sideToMove)));
+    }
+
+    /**
+     * Hash of a position given by the chips of the player to move and of the opponent.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @return the 64-bit hash.
+     */
+    static long hash(long own, long opp) {
+        long h = own * 0x9e3779b97f4a7c15L ^ Long.rotateLeft(opp * 0xc2b2ae3d27d4eb4fL, 31);
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        return h ^ h >>> 32;
+    }
+
+    /**
+     * Computes the Zobrist key of the chips from scratch.
+     * @return the key of the chips.
+     */
+    private long computeKey() {
+        long result = 0;
+        for (long b = black; b != 0; b &= b - 1) {
+            result ^= BLACK_KEYS[Long.numberOfTrailingZeros(b)];
         }
-        if (j != 7) {
-            if (grid[i][j + 1] == chip && goRight(i, j, curPlayer)) {
-                changeRight(i, j, curPlayer);
-            }
-            if (i != 7) {
-                if (grid[i + 1][j + 1] == chip) {
-                    changeDownRight(i, j, curPlayer);
-                }
-            }
+        for (long w = white; w != 0; w &= w - 1) {
+            result ^= WHITE_KEYS[Long.numberOfTrailingZeros(w)];
         }
+        return result;
     }
 
     /**
-     * Changes the chips to the right and lower from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * @param color the color of the chips.
+     * @return the bitboard of the chips of this color.
      */
-    private void changeDownRight(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            for (int l = j + 2; l < BOARD_SIZE; ++l) {
-                if (grid[k][l] == curPlayer) {
-                    for (int m = i + 1; m < k; ++m) {
-                        for (int n = j + 1; n < l; ++n) {
-                            grid[m][n] = curPlayer;
-                        }
-                    }
-                    return;
-                }
-            }
-        }
+    long chips(char color) {
+        return color == BLACK_CHIP ? black : white;
     }
 
     /**
-     * Changes the chips to the right from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * @param color the color of a player.
+     * @return the color of his opponent.
      */
-    private void changeRight(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = j + 2; k < BOARD_SIZE; ++k) {
-            if (grid[i][k] == curPlayer) {
-                for (int l = j + 1; l < k; ++l) {
-                    grid[i][l] = curPlayer;
-                }
-                return;
-            }
-        }
+    static char opponent(char color) {
+        return color == BLACK_CHIP ? WHITE_CHIP : BLACK_CHIP;
     }
 
     /**
-     * Changes the chips to the left and lower from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * Counts the leaf nodes of the game tree of the given depth (perft).
+     * A pass is a move; a finished game is a leaf even before the depth is reached.
+     * @param depth the depth of the tree.
+     * @param curPlayer the color of the player to move.
+     * @return the amount of leaf nodes.
      */
-    private void ChangeDownLeft(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            for (int l = j - 2; l > -1; --l) {
-                if (grid[k][l] == curPlayer) {
-                    for (int m = i + 1; m < k; ++m) {
-                        for (int n = j - 1; n > l; --n) {
-                            grid[m][n] = curPlayer;
-                        }
-                    }
-                    return;
-                }
-            }
-        }
+    long perft(int depth, char curPlayer) {
+        return perft(depth, curPlayer, false);
     }
 
     /**
-     * Changes the chips lower than the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * Perft on the bitboards with make/unmake.
+     * @param depth the remaining depth.
+     * @param curPlayer the color of the player to move.
+     * @param passed true, if the previous move was a pass.
+     * @return the amount of leaf nodes.
      */
-    private void changeDown(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i + 2; k < BOARD_SIZE; ++k) {
-            if (grid[k][j] == curPlayer) {
-                for (int l = i + 1; l < k; ++l) {
-                    grid[l][j] = curPlayer;
-                }
-                return;
-            }
-        }
+    private long perft(int depth, char curPlayer, boolean passed) {
+        if (depth == 0) {
+            return 1;
+        }
+        long moves = movesMask(curPlayer);
+        if (moves == 0) {
+            if (passed) {
+                return 1;
+            }
+            makeMove(PASS, curPlayer);
+            long nodes = perft(depth - 1, opponent(curPlayer), true);
+            unmakeMove();
+            return nodes;
+        }
+        if (depth == 1) {
+            return Long.bitCount(moves);
+        }
+        long nodes = 0;
+        while (moves != 0) {
+            makeMove(Long.numberOfTrailingZeros(moves), curPlayer);
+            nodes += perft(depth - 1, opponent(curPlayer), false);
+            unmakeMove();
+            moves &= moves - 1;
+        }
+        return nodes;
     }
 
     /**
-     * Changes the chips to the left and higher from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * @return the amount of moves (including passes) in the undo stack.
      */
-    private void ChangeUpLeft(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i - 2; k > -1; --k) {
-            for (int l = j - 2; l > -1; --l) {
-                if (grid[k][l] == curPlayer) {
-                    for (int m = i - 1; m > k; --m) {
-                        for (int n = j - 1; n > l; --n) {
-                            grid[m][n] = curPlayer;
-                        }
-                    }
-                    return;
-                }
-            }
-        }
+    int movesMade() {
+        return undoSize;
     }
 
     /**
-     * Changes the chips to the left from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * @param k the index of the move in the undo stack (0 is the first move).
+     * @return the square of the move or PASS.
      */
-    private void changeLeft(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = j - 2; k > - 1; --k) {
-            if (grid[i][k] == curPlayer) {
-                for (int l = j - 1; l > k; --l) {
-                    grid[i][l] = curPlayer;
-                }
-                return;
-            }
-        }
+    int moveAt(int k) {
+        return undoSquares[k];
     }
 
     /**
-     * Changes the chips to the right and higher from the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * @param k the index of the move in the undo stack (0 is the first move).
+     * @return the color of the player who made the move.
      */
-    private void changeUpRight(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i - 2; k > -1; --k) {
-            for (int l = j + 2; l < BOARD_SIZE; ++l) {
-                if (grid[k][l] == Board.EMPTY_CELL) {
-                    return;
-                } else if (grid[k][l] == curPlayer) {
-                    grid[i - 1][j + 1] = curPlayer;
-                }
-                grid[k][l] = curPlayer;
-            }
-        }
-        for (int k = i - 2; k > -1; --k) {
-            for (int l = j + 2; l < BOARD_SIZE; ++l) {
-                if (grid[k][l] == curPlayer) {
-                    for (int m = i - 1; m > k; --m) {
-                        for (int n = j + 1; n < l; ++n) {
-                            grid[m][n] = curPlayer;
-                        }
-                    }
-                    return;
-                }
-            }
-        }
+    char playerAt(int k) {
+        return undoPlayers[k];
     }
 
     /**
-     * Changes the chips higher than the chosen cell.
-     * @param i the row of the chosen cell.
-     * @param j the column of the chosen cell.
-     * @param curPlayer the color of the current player.
+     * Copies the state of the given squares from the bitboards to the grid.
+     * @param squares the mask of squares to refresh.
      */
-    private void changeUp(int i, int j, char curPlayer) {
-        grid[i][j] = curPlayer;
-        for (int k = i - 2; k > - 1; --k) {
-            if (grid[k][j] == curPlayer) {
-                for (int l = i - 1; l > k; --l) {
-                    grid[l][j] = curPlayer;
-                }
-                return;
-            }
+    private void syncGrid(long squares) {
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            long b = bit(square);
+            grid[square / BOARD_SIZE][square % BOARD_SIZE] =
+                    (black & b) != 0 ? BLACK_CHIP : (white & b) != 0 ? WHITE_CHIP : EMPTY_CELL;
+            squares &= squares - 1;
         }
     }
 
+    /**
+     * Single bit mask of the square.
+     * @param square the square index (i * 8 + j).
+     * @return the mask with only this square set.
+     */
+    static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Generates the legal moves with shift-and-mask flood fills in all eight directions.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @return the mask of legal squares.
+     */
+    static long generateMoves(long own, long opp) {
+        long empty = ~(own | opp);
+        return (movesLeft(own, opp, 1, NOT_A_FILE) | movesRight(own, opp, 1, NOT_H_FILE)
+                | movesLeft(own, opp, 8, -1L) | movesRight(own, opp, 8, -1L)
+                | movesLeft(own, opp, 9, NOT_A_FILE) | movesLeft(own, opp, 7, NOT_H_FILE)
+                | movesRight(own, opp, 7, NOT_A_FILE) | movesRight(own, opp, 9, NOT_H_FILE)) & empty;
+    }
+
+    /**
+     * Squares behind a line of opponent's chips that starts next to the player's chip, for a left shift.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param shift the shift of the direction.
+     * @param mask the mask that cuts off chips wrapping around the board edge.
+     * @return the squares reached (not yet filtered by emptiness).
+     */
+    private static long movesLeft(long own, long opp, int shift, long mask) {
+        long x = (own << shift) & mask & opp;
+        x |= (x << shift) & mask & opp;
+        x |= (x << shift) & mask & opp;
+        x |= (x << shift) & mask & opp;
+        x |= (x << shift) & mask & opp;
+        x |= (x << shift) & mask & opp;
+        return (x << shift) & mask;
+    }
+
+    /**
+     * Same as movesLeft for a right shift.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param shift the shift of the direction.
+     * @param mask the mask that cuts off chips wrapping around the board edge.
+     * @return the squares reached (not yet filtered by emptiness).
+     */
+    private static long movesRight(long own, long opp, int shift, long mask) {
+        long x = (own >>> shift) & mask & opp;
+        x |= (x >>> shift) & mask & opp;
+        x |= (x >>> shift) & mask & opp;
+        x |= (x >>> shift) & mask & opp;
+        x |= (x >>> shift) & mask & opp;
+        x |= (x >>> shift) & mask & opp;
+        return (x >>> shift) & mask;
+    }
+
+    /**
+     * Computes the opponent's chips flipped by placing a chip on the square.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param square the square index (i * 8 + j).
+     * @return the mask of flipped chips (0 if the move flips nothing).
+     */
+    static long flips(long own, long opp, int square) {
+        long start = bit(square);
+        return flipsLeft(own, opp, start, 1, NOT_A_FILE) | flipsRight(own, opp, start, 1, NOT_H_FILE)
+                | flipsLeft(own, opp, start, 8, -1L) | flipsRight(own, opp, start, 8, -1L)
+                | flipsLeft(own, opp, start, 9, NOT_A_FILE) | flipsLeft(own, opp, start, 7, NOT_H_FILE)
+                | flipsRight(own, opp, start, 7, NOT_A_FILE) | flipsRight(own, opp, start, 9, NOT_H_FILE);
+    }
+
+    /**
+     * Flipped chips in one direction, for a left shift.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param start the placed chip.
+     * @param shift the shift of the direction.
+     * @param mask the mask that cuts off chips wrapping around the board edge.
+     * @return the chips flipped in this direction.
+     */
+    private static long flipsLeft(long own, long opp, long start, int shift, long mask) {
+        long line = 0;
+        long x = (start << shift) & mask;
+        while ((x & opp) != 0) {
+            line |= x;
+            x = (x << shift) & mask;
+        }
+        return (x & own) != 0 ? line : 0;
+    }
+
+    /**
+     * Same as flipsLeft for a right shift.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param start the placed chip.
+     * @param shift the shift of the direction.
+     * @param mask the mask that cuts off chips wrapping around the board edge.
+     * @return the chips flipped in this direction.
+     */
+    private static long flipsRight(long own, long opp, long start, int shift, long mask) {
+        long line = 0;
+        long x = (start >>> shift) & mask;
+        while ((x & opp) != 0) {
+            line |= x;
+            x = (x >>> shift) & mask;
+        }
+        return (x & own) != 0 ? line : 0;
+    }
+
     /**
      * Counts the chips on the board.
      * @param color the color of counted chips.
      * @return the amount of 'color' chips
      */
     protected int countChips(char color) {
-        int counter = 0;
-        for (int i = 0; i < BOARD_SIZE; ++i) {
-            for (int j = 0; j < BOARD_SIZE; ++j) {
-                if (grid[i][j] == color) {
-                    ++counter;
-                }
-            }
+        if (color == BLACK_CHIP) {
+            return Long.bitCount(black);
+        }
+        if (color == WHITE_CHIP) {
+            return Long.bitCount(white);
         }
-        return counter;
+        return Long.bitCount(~(black | white));
     }
 }
@@ -0,0 +1,32 @@
+package org.example;
+
+/**
+ * Bot that plays from the opening book while the position is in it and asks another bot otherwise.
+ */
+public class BookAI implements IEvaluatable {
+
+    /**
+     * Book moves played in fewer games are ignored.
+     */
+    private static final int MIN_GAMES = 2;
+
+    private final OpeningBook book;
+
+    private final IEvaluatable engine;
+
+    /**
+     * BookAI constructor.
+     * @param book the opening book.
+     * @param engine the bot used out of the book.
+     */
+    BookAI(OpeningBook book, IEvaluatable engine) {
+        this.book = book;
+        this.engine = engine;
+    }
+
+    @Override
+    public int bestMove(Board board, char curPlayer) {
+        int move = book.bestMove(board, curPlayer, MIN_GAMES);
+        return move >= 0 ? move : engine.bestMove(board, curPlayer);
+    }
+}
@@ -0,0 +1,140 @@
+package org.example;
+
+import java.io.PrintStream;
+
+/**
+ * Draws a game on the console. Every event becomes one frame that is built in a reused buffer
+ * and written to the stream at once.
+ */
+class ConsoleRenderer implements GameListener {
+
+    private static final char POSSIBLE_CHIP = 'p';
+
+    private static final String ROW_LINE = "---------------------------------\n";
+
+    private final PrintStream out;
+
+    private final boolean versusBot;
+
+    private final StringBuilder frame = new StringBuilder(1024);
+
+    /**
+     * ConsoleRenderer constructor.
+     * @param out the console.
+     * @param versusBot true, if white is the bot; false for a player versus player game.
+     */
+    ConsoleRenderer(PrintStream out, boolean versusBot) {
+        this.out = out;
+        this.versusBot = versusBot;
+    }
+
+    @Override
+    public void turnStarted(GameSession session, char player, MoveList moves) {
+        if (versusBot && player == Board.WHITE_CHIP) {
+            return;
+        }
+        frame.setLength(0);
+        if (versusBot) {
+            frame.append("It is your turn. Please, choose the cell you want to place your chip.\n");
+        } else {
+            frame.append(player == Board.BLACK_CHIP ? "It is the first" : "It is the second")
+                    .append(" Player's turn. Please, choose the cell you want to place your chip.\n");
+        }
+        long possible = 0;
+        for (int k = 0; k < moves.size(); ++k) {
+            possible |= Board.bit(moves.square(k));
+        }
+        frame.append("\nPossible moves are illustrated with the letter p\n");
+        appendBoard(frame, session.board(), possible);
+        frame.append("You have ").append(moves.size()).append(" possible moves, they are presented bellow:");
+        for (int k = 0; k < moves.size(); ++k) {
+            frame.append('\n').append(k + 1).append(". ").append(moves.row(k) + 1).append(' ').append(moves.col(k) + 1);
+        }
+        frame.append("\nMake your move, entering the number of the suitable move (0 to undo your previous move)\n");
+        flush();
+    }
+
+    @Override
+    public void moveApplied(GameSession session, char player, int square) {
+        frame.setLength(0);
+        if (versusBot && player == Board.WHITE_CHIP) {
+            frame.append("\nThe computer made his move on the cell (").append(square / Board.BOARD_SIZE + 1)
+                    .append(", ").append(square % Board.BOARD_SIZE + 1).append(")\n");
+        } else {
+            frame.append("\nNow the board looks that way.\n");
+        }
+        appendBoard(frame, session.board(), 0);
+        flush();
+    }
+
+    @Override
+    public void passed(GameSession session, char player) {
+        frame.setLength(0);
+        frame.append(player == Board.BLACK_CHIP ? "Black" : "White")
+                .append(" has no possible moves, the turn passes to the other player.\n");
+        flush();
+    }
+
+    @Override
+    public void moveUndone(GameSession session, char player) {
+        frame.setLength(0);
+        frame.append("\nYour previous move has been undone.\n");
+        appendBoard(frame, session.board(), 0);
+        flush();
+    }
+
+    @Override
+    public void gameOver(GameSession session, int black, int white) {
+        frame.setLength(0);
+        if (!session.board().isFull()) {
+            frame.append("No possible moves for the both players!\n");
+        }
+        frame.append("The game is over.\n\n");
+        if (white > black) {
+            frame.append("The winner is white player. His score is ").append(white).append(".\n");
+        } else if (black > white) {
+            frame.append("The winner is black player. His score is ").append(black).append(".\n");
+        } else {
+            frame.append("The game has ended with a tie. The score of both players is ").append(white).append(".\n");
+        }
+        flush();
+    }
+
+    /**
+     * Writes the frame to the console.
+     */
+    private void flush() {
+        out.print(frame);
+        out.flush();
+    }
+
+    /**
+     * Draws the board.
+     * @param sb the frame.
+     * @param board the position.
+     * @param possible the squares to mark as possible moves.
+     */
+    static void appendBoard(StringBuilder sb, Board board, long possible) {
+        long black = board.chips(Board.BLACK_CHIP);
+        long white = board.chips(Board.WHITE_CHIP);
+        sb.append(ROW_LINE);
+        for (int i = 0; i < Board.BOARD_SIZE; ++i) {
+            sb.append("| ");
+            for (int j = 0; j < Board.BOARD_SIZE; ++j) {
+                long b = Board.bit(i * Board.BOARD_SIZE + j);
+                char cell;
+                if ((possible & b) != 0) {
+                    cell = POSSIBLE_CHIP;
+                } else if ((black & b) != 0) {
+                    cell = Board.BLACK_CHIP;
+                } else if ((white & b) != 0) {
+                    cell = Board.WHITE_CHIP;
+                } else {
+                    cell = Board.EMPTY_CELL;
+                }
+                sb.append(cell).append(" | ");
+            }
+            sb.append('\n').append(ROW_LINE);
+        }
+    }
+}
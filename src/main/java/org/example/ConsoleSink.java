@@ -0,0 +1,12 @@
+package org.example;
+
+/**
+ * Prints the metrics of every move to the console.
+ */
+class ConsoleSink implements MetricsSink {
+
+    @Override
+    public void report(SearchReport report) {
+        System.out.println("Search: " + report);
+    }
+}
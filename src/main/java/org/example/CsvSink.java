@@ -0,0 +1,48 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the metrics of every move as a line of a CSV file (with a header line if the file is new).
+ */
+class CsvSink implements MetricsSink {
+
+    static final String HEADER = "time,move,score,depth,solved,nodes,nodes_per_sec,millis,"
+            + "tt_probes,tt_hits,cutoffs,first_move_cutoffs,threads,pv";
+
+    private final BufferedWriter out;
+
+    /**
+     * CsvSink constructor.
+     * @param path the CSV file.
+     * @throws IOException if the file can not be opened.
+     */
+    CsvSink(Path path) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!exists) {
+            out.write(HEADER);
+            out.newLine();
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void report(SearchReport report) {
+        try {
+            out.write(String.format("%d,%s,%d,%d,%b,%d,%.0f,%.3f,%d,%d,%d,%d,%d,%s",
+                    System.currentTimeMillis(), SearchReport.squareName(report.move), report.score, report.depth,
+                    report.solved, report.nodes, report.nodesPerSecond(), report.millis(), report.ttProbes,
+                    report.ttHits, report.cutoffs, report.firstMoveCutoffs, report.threads, report.pvString()));
+            out.newLine();
+            out.flush();
+        } catch (IOException ex) {
+            System.out.println("The search metrics can not be written: " + ex.getMessage());
+        }
+    }
+}
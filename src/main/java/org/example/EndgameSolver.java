@@ -0,0 +1,353 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Perfect-play endgame solver: finds the exact final disc difference.
+ * Works on bitboard pairs passed by value, so no undo is needed.
+ * Moves are ordered fastest-first (fewest opponent replies) far from the end,
+ * by quadrant parity close to the end, and the last four empties use a dedicated loop without move generation.
+ */
+public class EndgameSolver {
+
+    /**
+     * From this many empties on, moves are sorted by the opponent's mobility.
+     */
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    private static final int LAST_EMPTIES = 4;
+
+    /**
+     * From this many empties on, results are kept in the transposition table.
+     */
+    private static final int HASH_EMPTIES = 9;
+
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private static final long[] QUADRANTS = {
+            0x000000000f0f0f0fL, 0x00000000f0f0f0f0L, 0x0f0f0f0f00000000L, 0xf0f0f0f000000000L};
+
+    /**
+     * Limits are checked once per this many nodes.
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    /**
+     * Per-empties scratch buffers for move ordering.
+     */
+    private final int[][] orderedSquares = new int[Board.BOARD_SIZE * Board.BOARD_SIZE + 1][Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private final long[][] orderedFlips = new long[Board.BOARD_SIZE * Board.BOARD_SIZE + 1][Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private final int[][] orderKeys = new int[Board.BOARD_SIZE * Board.BOARD_SIZE + 1][Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private final TranspositionTable table;
+
+    private long nodes;
+
+    private long deadline = Long.MAX_VALUE;
+
+    private boolean aborted;
+
+    private int lastScore;
+
+    /**
+     * EndgameSolver constructor with a 16 MB transposition table.
+     */
+    EndgameSolver() {
+        this(16);
+    }
+
+    /**
+     * EndgameSolver constructor.
+     * @param ttSizeMb the size of the transposition table in megabytes.
+     */
+    EndgameSolver(int ttSizeMb) {
+        table = new TranspositionTable(ttSizeMb);
+    }
+
+    /**
+     * Solves the position exactly.
+     * @param board the field on which the game is played.
+     * @param player the color of the player to move.
+     * @return the final disc difference with perfect play from the point of view of the player to move.
+     */
+    int solve(Board board, char player) {
+        nodes = 0;
+        aborted = false;
+        deadline = Long.MAX_VALUE;
+        table.newSearch();
+        long own = board.chips(player);
+        long opp = board.chips(Board.opponent(player));
+        return search(own, opp, -Board.BOARD_SIZE * Board.BOARD_SIZE, Board.BOARD_SIZE * Board.BOARD_SIZE, false);
+    }
+
+    /**
+     * Finds the move with the best exact result.
+     * @param board the field on which the game is played.
+     * @param player the color of the player to move.
+     * @param timeLimitMillis the time budget in milliseconds.
+     * @return the best move, Board.PASS if there are no moves, or -1 if the budget ran out.
+     */
+    int bestMove(Board board, char player, long timeLimitMillis) {
+        nodes = 0;
+        aborted = false;
+        deadline = System.currentTimeMillis() + timeLimitMillis;
+        table.newSearch();
+        long own = board.chips(player);
+        long opp = board.chips(Board.opponent(player));
+        long moves = Board.generateMoves(own, opp);
+        if (moves == 0) {
+            return Board.PASS;
+        }
+        int alpha = -Board.BOARD_SIZE * Board.BOARD_SIZE - 1;
+        int best = Long.numberOfTrailingZeros(moves);
+        int empties = Long.bitCount(~(own | opp));
+        int count = orderMoves(own, opp, moves, empties, Board.PASS);
+        int[] squares = orderedSquares[empties];
+        long[] flips = orderedFlips[empties];
+        for (int k = 0; k < count; ++k) {
+            int square = squares[k];
+            long flipped = flips[k];
+            int score = -search(opp & ~flipped, own | flipped | Board.bit(square),
+                    -Board.BOARD_SIZE * Board.BOARD_SIZE, -alpha, false);
+            if (aborted) {
+                return -1;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = square;
+            }
+        }
+        lastScore = alpha;
+        return best;
+    }
+
+    /**
+     * @return the exact score of the last bestMove call.
+     */
+    int lastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return the amount of nodes searched by the last call.
+     */
+    long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Principal variation search of the exact disc difference.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param alpha the lower bound.
+     * @param beta the upper bound.
+     * @param passed true, if the previous move was a pass.
+     * @return the final disc difference from the point of view of the player to move.
+     */
+    private int search(long own, long opp, int alpha, int beta, boolean passed) {
+        if (++nodes % CHECK_INTERVAL == 0 && System.currentTimeMillis() >= deadline) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        long empty = ~(own | opp);
+        int empties = Long.bitCount(empty);
+        if (empties <= LAST_EMPTIES) {
+            return searchLast(own, opp, empty, alpha, beta, passed);
+        }
+        long moves = Board.generateMoves(own, opp);
+        if (moves == 0) {
+            if (passed) {
+                return Long.bitCount(own) - Long.bitCount(opp);
+            }
+            return -search(opp, own, -beta, -alpha, true);
+        }
+        long key = 0;
+        int hashMove = Board.PASS;
+        if (empties >= HASH_EMPTIES) {
+            key = Board.hash(own, opp);
+            long entry = table.probe(key);
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                int hashScore = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && hashScore >= beta
+                        || bound == TranspositionTable.UPPER && hashScore <= alpha) {
+                    return hashScore;
+                }
+            }
+        }
+        int alphaOrig = alpha;
+        int best = -Board.BOARD_SIZE * Board.BOARD_SIZE;
+        int bestMove = Board.PASS;
+        int count = orderMoves(own, opp, moves, empties, hashMove);
+        int[] squares = orderedSquares[empties];
+        long[] flips = orderedFlips[empties];
+        for (int k = 0; k < count; ++k) {
+            int square = squares[k];
+            long flipped = flips[k];
+            long nextOwn = opp & ~flipped;
+            long nextOpp = own | flipped | Board.bit(square);
+            int score;
+            if (k == 0) {
+                score = -search(nextOwn, nextOpp, -beta, -alpha, false);
+            } else {
+                score = -search(nextOwn, nextOpp, -alpha - 1, -alpha, false);
+                if (score > alpha && score < beta) {
+                    score = -search(nextOwn, nextOpp, -beta, -score, false);
+                }
+            }
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (empties >= HASH_EMPTIES && !aborted) {
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, empties, bound, best, bestMove);
+        }
+        return best;
+    }
+
+    /**
+     * Search of the last few empties: tries every empty square directly, odd-parity quadrants first.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param empty the empty squares.
+     * @param alpha the lower bound.
+     * @param beta the upper bound.
+     * @param passed true, if the previous move was a pass.
+     * @return the final disc difference from the point of view of the player to move.
+     */
+    private int searchLast(long own, long opp, long empty, int alpha, int beta, boolean passed) {
+        ++nodes;
+        if (empty == 0) {
+            return Long.bitCount(own) - Long.bitCount(opp);
+        }
+        long odd = 0;
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= quadrant;
+            }
+        }
+        int best = -Board.BOARD_SIZE * Board.BOARD_SIZE - 1;
+        for (int pass = 0; pass < 2; ++pass) {
+            long squares = empty & (pass == 0 ? odd : ~odd);
+            while (squares != 0) {
+                int square = Long.numberOfTrailingZeros(squares);
+                squares &= squares - 1;
+                long flipped = Board.flips(own, opp, square);
+                if (flipped == 0) {
+                    continue;
+                }
+                long placed = Board.bit(square);
+                int score = -searchLast(opp & ~flipped, own | flipped | placed, empty & ~placed, -beta, -alpha, false);
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            return best;
+                        }
+                    }
+                }
+            }
+        }
+        if (best == -Board.BOARD_SIZE * Board.BOARD_SIZE - 1) {
+            if (passed) {
+                return Long.bitCount(own) - Long.bitCount(opp);
+            }
+            return -searchLast(opp, own, empty, -beta, -alpha, true);
+        }
+        return best;
+    }
+
+    /**
+     * Orders the moves into the scratch buffer of this empties count.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @param moves the legal moves.
+     * @param empties the amount of empty squares.
+     * @param firstMove the move to put first (the hash move) or Board.PASS.
+     * @return the amount of moves.
+     */
+    private int orderMoves(long own, long opp, long moves, int empties, int firstMove) {
+        int[] squares = orderedSquares[empties];
+        long[] flips = orderedFlips[empties];
+        int[] keys = orderKeys[empties];
+        long empty = ~(own | opp);
+        int count = 0;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long placed = Board.bit(square);
+            long flipped = Board.flips(own, opp, square);
+            int key = 0;
+            for (long quadrant : QUADRANTS) {
+                if ((quadrant & placed) != 0 && (Long.bitCount(empty & quadrant) & 1) == 0) {
+                    key = 1;
+                }
+            }
+            if (square == firstMove) {
+                key = Integer.MIN_VALUE;
+            } else if (empties >= FASTEST_FIRST_EMPTIES) {
+                long replies = Board.generateMoves(opp & ~flipped, own | flipped | placed);
+                key += 4 * (Long.bitCount(replies) + Long.bitCount(replies & CORNERS));
+            }
+            int k = count++;
+            while (k > 0 && keys[k - 1] > key) {
+                squares[k] = squares[k - 1];
+                flips[k] = flips[k - 1];
+                keys[k] = keys[k - 1];
+                --k;
+            }
+            squares[k] = square;
+            flips[k] = flipped;
+            keys[k] = key;
+        }
+        return count;
+    }
+
+    /**
+     * Solves random positions with the given amount of empties and prints the timings.
+     * Usage: EndgameSolver [empties] [positions]
+     */
+    public static void main(String[] args) {
+        int empties = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        var random = new SplittableRandom(empties);
+        var solver = new EndgameSolver();
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (int k = 0; k < positions; ++k) {
+            var board = new Board();
+            char player = Board.BLACK_CHIP;
+            while (board.countChips(Board.EMPTY_CELL) > empties) {
+                char next = SearchScaling.randomPlayout(board, player, 1, random);
+                if (board.movesMask(player) == 0 && board.movesMask(next) == 0) {
+                    board = new Board();
+                    next = Board.BLACK_CHIP;
+                }
+                player = next;
+            }
+            long positionStart = System.nanoTime();
+            int score = solver.solve(board, player);
+            long millis = (System.nanoTime() - positionStart) / 1_000_000;
+            totalNodes += solver.nodes();
+            System.out.printf("%d. score %+d, %d nodes, %d ms%n", k + 1, score, solver.nodes(), millis);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions in %.2f s, %.0f nodes/sec%n", positions, seconds, totalNodes / seconds);
+    }
+}
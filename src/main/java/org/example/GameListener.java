@@ -0,0 +1,51 @@
+package org.example;
+
+/**
+ * Receives the events of a GameSession. The events are sent on the thread that drives the session;
+ * a listener must not play moves from inside an event.
+ */
+interface GameListener {
+
+    /**
+     * A player is to move.
+     * @param session the session.
+     * @param player the color of the player to move.
+     * @param moves the legal moves of the player (valid until the next move).
+     */
+    default void turnStarted(GameSession session, char player, MoveList moves) {
+    }
+
+    /**
+     * A move has been made.
+     * @param session the session.
+     * @param player the color of the player who made the move.
+     * @param square the square of the move.
+     */
+    default void moveApplied(GameSession session, char player, int square) {
+    }
+
+    /**
+     * A player had no moves and passed.
+     * @param session the session.
+     * @param player the color of the player who passed.
+     */
+    default void passed(GameSession session, char player) {
+    }
+
+    /**
+     * Moves have been taken back, so it is the player's turn again.
+     * @param session the session.
+     * @param player the color of the player who took his move back.
+     */
+    default void moveUndone(GameSession session, char player) {
+    }
+
+    /**
+     * Neither player can move any more.
+     * @param session the session.
+     * @param black the amount of black chips.
+     * @param white the amount of white chips.
+     */
+    default void gameOver(GameSession session, int black, int white) {
+    }
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming reader of game record files; the records are read into one reusable buffer,
+ * so iterating over any amount of games allocates nothing per record.
+ * File layout (big-endian): MAGIC, VERSION, then the records. A record is HEADER_BYTES long:
+ * black player, white player (player kinds), final disc difference (black minus white), amount of moves
+ * (unsigned bytes), start and end time in epoch milliseconds (longs); followed by one byte per move:
+ * the square (i * 8 + j) or Board.PASS. Black moves first and the colors alternate, passes included.
+ */
+public class GameRecordReader implements Closeable {
+
+    static final int MAGIC = 0x52564752;
+
+    static final int VERSION = 1;
+
+    static final int FILE_HEADER_BYTES = 8;
+
+    static final int HEADER_BYTES = 20;
+
+    /**
+     * Player kinds.
+     */
+    static final int HUMAN = 0;
+
+    static final int EASY_BOT = 1;
+
+    static final int MEDIUM_BOT = 2;
+
+    static final int OTHER_ENGINE = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Start of the current record and end of the data in the buffer.
+     */
+    private int offset;
+
+    private int limit;
+
+    private int recordBytes;
+
+    /**
+     * GameRecordReader constructor.
+     * @param path the game record file.
+     * @throws IOException if the file can not be read or is not a game record file.
+     */
+    GameRecordReader(Path path) throws IOException {
+        in = Files.newInputStream(path);
+        if (!fill(FILE_HEADER_BYTES) || readInt(0) != MAGIC || readInt(4) != VERSION) {
+            in.close();
+            throw new IOException("Not a game record file: " + path);
+        }
+        recordBytes = FILE_HEADER_BYTES;
+    }
+
+    /**
+     * Moves to the next record.
+     * @return false at the end of the file.
+     * @throws IOException if the file can not be read or is truncated.
+     */
+    boolean next() throws IOException {
+        offset += recordBytes;
+        recordBytes = 0;
+        if (!fill(HEADER_BYTES)) {
+            if (offset != limit) {
+                throw new IOException("The game record file is truncated");
+            }
+            return false;
+        }
+        int length = HEADER_BYTES + moveCount();
+        if (!fill(length)) {
+            throw new IOException("The game record file is truncated");
+        }
+        recordBytes = length;
+        return true;
+    }
+
+    /**
+     * @return the kind of the black player of the current record.
+     */
+    int blackPlayer() {
+        return buffer[offset] & 0xff;
+    }
+
+    /**
+     * @return the kind of the white player of the current record.
+     */
+    int whitePlayer() {
+        return buffer[offset + 1] & 0xff;
+    }
+
+    /**
+     * @return the final disc difference (black minus white) of the current record.
+     */
+    int result() {
+        return buffer[offset + 2];
+    }
+
+    /**
+     * @return the amount of moves (passes included) of the current record.
+     */
+    int moveCount() {
+        return buffer[offset + 3] & 0xff;
+    }
+
+    /**
+     * @return the start time of the game in epoch milliseconds.
+     */
+    long startMillis() {
+        return readLong(offset + 4);
+    }
+
+    /**
+     * @return the end time of the game in epoch milliseconds.
+     */
+    long endMillis() {
+        return readLong(offset + 12);
+    }
+
+    /**
+     * @param k the number of the move, from 0.
+     * @return the square of the move or Board.PASS.
+     */
+    int move(int k) {
+        return buffer[offset + HEADER_BYTES + k] & 0xff;
+    }
+
+    /**
+     * @param k the number of the move, from 0.
+     * @return the color of the player who made the move.
+     */
+    static char playerOf(int k) {
+        return (k & 1) == 0 ? Board.BLACK_CHIP : Board.WHITE_CHIP;
+    }
+
+    /**
+     * Plays the first moves of the current record on a board.
+     * @param board the board in the start position.
+     * @param plies the amount of moves to play (at most moveCount()).
+     */
+    void replay(Board board, int plies) {
+        for (int k = 0; k < plies; ++k) {
+            board.makeMove(move(k), playerOf(k));
+        }
+    }
+
+    /**
+     * Makes sure the buffer holds the given amount of bytes from the start of the current record.
+     * @param bytes the amount of bytes.
+     * @return false if the file ends before.
+     * @throws IOException if the file can not be read.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (limit - offset >= bytes) {
+            return true;
+        }
+        System.arraycopy(buffer, offset, buffer, 0, limit - offset);
+        limit -= offset;
+        offset = 0;
+        while (limit < bytes) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    /**
+     * @param at the position in the buffer.
+     * @return the big-endian int at the position.
+     */
+    private int readInt(int at) {
+        return (buffer[at] & 0xff) << 24 | (buffer[at + 1] & 0xff) << 16 | (buffer[at + 2] & 0xff) << 8 | buffer[at + 3] & 0xff;
+    }
+
+    /**
+     * @param at the position in the buffer.
+     * @return the big-endian long at the position.
+     */
+    private long readLong(int at) {
+        return (long) readInt(at) << 32 | readInt(at + 4) & 0xffffffffL;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
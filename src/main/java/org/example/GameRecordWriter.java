@@ -0,0 +1,75 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered writer that appends finished games to a game record file (format in GameRecordReader).
+ */
+public class GameRecordWriter implements Closeable {
+
+    private final DataOutputStream out;
+
+    /**
+     * GameRecordWriter constructor: opens the file for appending, writes the file header if it is new.
+     * @param path the game record file.
+     * @throws IOException if the file can not be opened.
+     */
+    GameRecordWriter(Path path) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16));
+        if (!exists) {
+            out.writeInt(GameRecordReader.MAGIC);
+            out.writeInt(GameRecordReader.VERSION);
+        }
+    }
+
+    /**
+     * Appends a game.
+     * @param board the board with the moves of the game in its undo stack (from the start position).
+     * @param blackPlayer the kind of the black player.
+     * @param whitePlayer the kind of the white player.
+     * @param startMillis the start time of the game in epoch milliseconds.
+     * @param endMillis the end time of the game in epoch milliseconds.
+     * @throws IOException if the file can not be written.
+     */
+    void write(Board board, int blackPlayer, int whitePlayer, long startMillis, long endMillis) throws IOException {
+        int moves = board.movesMade();
+        if (moves > 0xff) {
+            throw new IOException("Too many moves for a game record: " + moves);
+        }
+        for (int k = 0; k < moves; ++k) {
+            if (board.playerAt(k) != GameRecordReader.playerOf(k)) {
+                throw new IOException("The moves of the game do not alternate: record the passes with Board.PASS");
+            }
+        }
+        out.writeByte(blackPlayer);
+        out.writeByte(whitePlayer);
+        out.writeByte(board.countChips(Board.BLACK_CHIP) - board.countChips(Board.WHITE_CHIP));
+        out.writeByte(moves);
+        out.writeLong(startMillis);
+        out.writeLong(endMillis);
+        for (int k = 0; k < moves; ++k) {
+            out.writeByte(board.moveAt(k));
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     * @throws IOException if the file can not be written.
+     */
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,538 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking Reversi server: one selector thread serves all the connections and owns all the boards,
+ * bot moves are searched on a bounded worker pool and handed back to the selector thread.
+ * Line protocol (UTF-8, one command per line). Client: "NEW easy|medium|pvp", "MOVE d3", "BOARD", "QUIT".
+ * Server: "WAIT" (looking for a pvp opponent), "START b|w" (the color of the client),
+ * "TURN color square..." (to the player to move, with the legal moves), "MOVED color square|pass" (to both players),
+ * "BOARD position" (see BatchAnalyzer), "END blackChips whiteChips", "ERR message".
+ * Usage: GameServer [port] [botThreads] [botMillis]
+ */
+public class GameServer {
+
+    static final int DEFAULT_PORT = 7777;
+
+    private static final int MAX_LINE = 256;
+
+    /**
+     * Output a client may leave unread; a client that falls further behind is disconnected.
+     */
+    private static final int MAX_QUEUED_BYTES = 64 * 1024;
+
+    /**
+     * Bot moves waiting for a worker; when the queue is full, new games versus a bot get "ERR busy".
+     */
+    private static final int BOT_QUEUE = 4096;
+
+    /**
+     * A game hosted by the server: a session and the players it talks to. Touched only by the selector thread.
+     */
+    private final class HostedGame implements GameListener {
+
+        private final GameSession session = new GameSession();
+
+        /**
+         * The connections playing black and white; null for the bot.
+         */
+        private final Connection black;
+
+        private final Connection white;
+
+        private final String bot;
+
+        private boolean over;
+
+        /**
+         * HostedGame constructor.
+         * @param black the connection playing black.
+         * @param white the connection playing white or null for the bot.
+         * @param bot the bot name ("easy" or "medium") or null for a pvp game.
+         */
+        HostedGame(Connection black, Connection white, String bot) {
+            this.black = black;
+            this.white = white;
+            this.bot = bot;
+            session.addListener(this);
+        }
+
+        /**
+         * @param player the color.
+         * @return the connection of the color or null for the bot.
+         */
+        Connection connection(char player) {
+            return player == Board.BLACK_CHIP ? black : white;
+        }
+
+        /**
+         * Sends a line to both players.
+         * @param line the line.
+         */
+        void broadcast(String line) {
+            black.send(line);
+            if (white != null) {
+                white.send(line);
+            }
+        }
+
+        @Override
+        public void moveApplied(GameSession session, char player, int square) {
+            broadcast("MOVED " + player + " " + SearchReport.squareName(square));
+        }
+
+        @Override
+        public void passed(GameSession session, char player) {
+            broadcast("MOVED " + player + " pass");
+        }
+
+        @Override
+        public void turnStarted(GameSession session, char player, MoveList moves) {
+            Connection connection = connection(player);
+            if (connection != null) {
+                var sb = new StringBuilder("TURN ").append(player);
+                for (int k = 0; k < moves.size(); ++k) {
+                    sb.append(' ').append(SearchReport.squareName(moves.square(k)));
+                }
+                connection.send(sb.toString());
+            } else {
+                askBot(player);
+            }
+        }
+
+        @Override
+        public void gameOver(GameSession session, int blackChips, int whiteChips) {
+            over = true;
+            broadcast("END " + blackChips + " " + whiteChips);
+            black.game = null;
+            if (white != null) {
+                white.game = null;
+            }
+        }
+
+        /**
+         * Hands the position to the bot workers; the move comes back through the finished queue.
+         * @param player the color of the bot.
+         */
+        private void askBot(char player) {
+            // The worker gets an immutable snapshot; the board stays with the selector thread.
+            Position position = Position.of(session.board(), player);
+            try {
+                bots.execute(() -> {
+                    Runnable answer;
+                    try {
+                        int move = engines.get().bestMove(position.toBoard(), player, bot);
+                        answer = () -> {
+                            if (!over) {
+                                try {
+                                    session.play(move);
+                                } catch (ReversiException ex) {
+                                    abort("ERR bot failed: " + ex.getMessage());
+                                }
+                            }
+                        };
+                    } catch (Throwable ex) {
+                        // Without an answer the game would wait for the bot forever.
+                        answer = () -> abort("ERR bot failed: " + ex);
+                    }
+                    finished.add(answer);
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException ex) {
+                abort("ERR busy");
+            }
+        }
+
+        /**
+         * Ends a game versus the bot without a result.
+         * @param message the error line for the player.
+         */
+        private void abort(String message) {
+            if (over) {
+                return;
+            }
+            over = true;
+            black.send(message);
+            black.game = null;
+        }
+    }
+
+    /**
+     * One client connection with its input and output buffers.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+
+        private final Queue<ByteBuffer> output = new ArrayDeque<>();
+
+        private int queuedBytes;
+
+        private HostedGame game;
+
+        private char color;
+
+        /**
+         * Connection constructor.
+         * @param channel the client channel (non-blocking).
+         * @throws IOException if the channel can not be registered.
+         */
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        /**
+         * Queues a line for the client.
+         * @param line the line without the line break.
+         */
+        void send(String line) {
+            if (!key.isValid()) {
+                return;
+            }
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            if (queuedBytes + bytes.length > MAX_QUEUED_BYTES) {
+                // The client does not read: do not buffer for it without limit.
+                close();
+                return;
+            }
+            queuedBytes += bytes.length;
+            output.add(ByteBuffer.wrap(bytes));
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Reads the available bytes and executes the complete lines.
+         * @throws IOException if the connection failed.
+         */
+        void read() throws IOException {
+            if (channel.read(input) < 0) {
+                close();
+                return;
+            }
+            input.flip();
+            int start = 0;
+            for (int k = 0; k < input.limit(); ++k) {
+                if (input.get(k) == '\n') {
+                    String line = new String(input.array(), start, k - start, StandardCharsets.UTF_8).trim();
+                    start = k + 1;
+                    execute(line);
+                    if (!key.isValid()) {
+                        return;
+                    }
+                }
+            }
+            input.position(start);
+            input.compact();
+            if (!input.hasRemaining()) {
+                send("ERR line too long");
+                close();
+            }
+        }
+
+        /**
+         * Writes as much of the queued output as the socket takes.
+         * @throws IOException if the connection failed.
+         */
+        void write() throws IOException {
+            while (!output.isEmpty()) {
+                ByteBuffer buffer = output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                queuedBytes -= buffer.limit();
+                output.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        /**
+         * Executes a command of the client.
+         * @param line the command line.
+         */
+        void execute(String line) {
+            String[] words = line.split("\\s+");
+            switch (words[0].toUpperCase()) {
+                case "NEW" -> newGame(words.length > 1 ? words[1] : "");
+                case "MOVE" -> move(words.length > 1 ? words[1] : "");
+                case "BOARD" -> send(game == null ? "ERR no game"
+                        : "BOARD " + BatchAnalyzer.encode(game.session.board(), game.session.curPlayer()));
+                case "QUIT" -> close();
+                case "" -> { }
+                default -> send("ERR unknown command " + words[0]);
+            }
+        }
+
+        /**
+         * Starts a game versus a bot or looks for a pvp opponent.
+         * @param mode "easy", "medium" or "pvp".
+         */
+        private void newGame(String mode) {
+            if (game != null || waiting == this) {
+                send("ERR already playing");
+                return;
+            }
+            switch (mode) {
+                case "easy", "medium" -> {
+                    color = Board.BLACK_CHIP;
+                    game = new HostedGame(this, null, mode);
+                    send("START b");
+                    game.session.start();
+                }
+                case "pvp" -> {
+                    if (waiting == null) {
+                        waiting = this;
+                        send("WAIT");
+                    } else {
+                        Connection opponent = waiting;
+                        waiting = null;
+                        var pvp = new HostedGame(opponent, this, null);
+                        opponent.game = pvp;
+                        opponent.color = Board.BLACK_CHIP;
+                        game = pvp;
+                        color = Board.WHITE_CHIP;
+                        opponent.send("START b");
+                        send("START w");
+                        pvp.session.start();
+                    }
+                }
+                default -> send("ERR unknown mode " + mode);
+            }
+        }
+
+        /**
+         * Plays a move of the client.
+         * @param name the name of the square, for example "d3".
+         */
+        private void move(String name) {
+            if (game == null || game.session.curPlayer() != color || game.connection(color) != this) {
+                send("ERR not your turn");
+                return;
+            }
+            try {
+                game.session.play(squareOf(name));
+            } catch (ReversiException ex) {
+                send("ERR illegal move " + name);
+            }
+        }
+
+        /**
+         * Closes the connection; the opponent of a pvp game is told the game is over.
+         */
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (waiting == this) {
+                waiting = null;
+            }
+            if (game != null) {
+                HostedGame current = game;
+                current.over = true;
+                current.black.game = null;
+                if (current.white != null) {
+                    current.white.game = null;
+                    Connection opponent = current.black == this ? current.white : current.black;
+                    opponent.send("ERR opponent left");
+                }
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The connection is gone anyway.
+            }
+        }
+    }
+
+    /**
+     * Bot engines of the worker threads.
+     */
+    private static final class Engines {
+
+        private final IEvaluatable easy = new AI();
+
+        private final IEvaluatable medium;
+
+        /**
+         * Engines constructor.
+         * @param botMillis the time of a move of the medium bot.
+         */
+        Engines(long botMillis) {
+            medium = new SearchAI(botMillis, Long.MAX_VALUE, 60, 4, 1, 12);
+        }
+
+        /**
+         * @param board the position (a copy owned by the worker).
+         * @param player the color of the bot.
+         * @param bot "easy" or "medium".
+         * @return the move of the bot.
+         */
+        int bestMove(Board board, char player, String bot) {
+            return (bot.equals("easy") ? easy : medium).bestMove(board, player);
+        }
+    }
+
+    private final Selector selector;
+
+    private final ServerSocketChannel server;
+
+    private final ThreadPoolExecutor bots;
+
+    private final ThreadLocal<Engines> engines;
+
+    /**
+     * Bot moves finished by the workers, applied by the selector thread.
+     */
+    private final Queue<Runnable> finished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The client waiting for a pvp opponent.
+     */
+    private Connection waiting;
+
+    private volatile boolean running = true;
+
+    /**
+     * GameServer constructor: binds the port.
+     * @param port the port.
+     * @param botThreads the amount of bot worker threads.
+     * @param botMillis the time of a move of the medium bot.
+     * @throws IOException if the port can not be bound.
+     */
+    GameServer(int port, int botThreads, long botMillis) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        bots = new ThreadPoolExecutor(botThreads, botThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(BOT_QUEUE), runnable -> {
+                    var thread = new Thread(runnable, "bot-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        engines = ThreadLocal.withInitial(() -> new Engines(botMillis));
+    }
+
+    /**
+     * @return the bound port.
+     * @throws IOException if the server socket is closed.
+     */
+    int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves the clients until stop is called.
+     * @throws IOException if the selector fails.
+     */
+    void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = finished.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } finally {
+            bots.shutdownNow();
+            server.close();
+            selector.close();
+        }
+    }
+
+    /**
+     * Handles a ready key.
+     * @param key the key.
+     */
+    private void handle(SelectionKey key) {
+        if (key.isValid() && key.isAcceptable()) {
+            try {
+                SocketChannel channel = server.accept();
+                if (channel != null) {
+                    channel.configureBlocking(false);
+                    // Replies are short lines: do not hold them back waiting for the client's acknowledgment.
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    new Connection(channel);
+                }
+            } catch (IOException ex) {
+                System.out.println("A connection can not be accepted: " + ex.getMessage());
+            }
+            return;
+        }
+        var connection = (Connection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+        } catch (IOException ex) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Stops the server loop.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * @param name the name of a square, for example "d3".
+     * @return the square index or -1 if the name is wrong.
+     */
+    static int squareOf(String name) {
+        if (name.length() != 2) {
+            return -1;
+        }
+        int j = name.charAt(0) - 'a';
+        int i = name.charAt(1) - '1';
+        if (i < 0 || i >= Board.BOARD_SIZE || j < 0 || j >= Board.BOARD_SIZE) {
+            return -1;
+        }
+        return i * Board.BOARD_SIZE + j;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int botThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long botMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        var gameServer = new GameServer(port, botThreads, botMillis);
+        System.out.printf("Reversi server on port %d with %d bot workers.%n", gameServer.port(), botThreads);
+        gameServer.run();
+    }
+}
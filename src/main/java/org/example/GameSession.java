@@ -0,0 +1,160 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State machine of one game, without any input or output: it takes the moves of the players,
+ * makes the passes itself and tells its listeners what happened. Whoever drives the session
+ * (the console, the server) asks the player to move and calls play, so a game never blocks a thread
+ * and never grows the stack.
+ */
+class GameSession {
+
+    /**
+     * States of the session.
+     */
+    enum State {
+        /**
+         * The session has been created, start has not been called yet.
+         */
+        NEW,
+        /**
+         * The player curPlayer is to move.
+         */
+        TURN,
+        /**
+         * Neither player can move.
+         */
+        OVER
+    }
+
+    private final Board board = new Board();
+
+    private final MoveList moves = new MoveList();
+
+    private final List<GameListener> listeners = new ArrayList<>(2);
+
+    private char curPlayer = Board.BLACK_CHIP;
+
+    private State state = State.NEW;
+
+    /**
+     * Adds a listener of the events.
+     * @param listener the listener.
+     */
+    void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts the game: black is to move.
+     */
+    void start() {
+        if (state == State.NEW) {
+            nextTurn();
+        }
+    }
+
+    /**
+     * Makes a move of the player to move.
+     * @param square the square of the move.
+     * @throws ReversiException if the game is not running or the move is not legal.
+     */
+    void play(int square) throws ReversiException {
+        if (state != State.TURN) {
+            throw new ReversiException("The game is not running.");
+        }
+        if (square < 0 || square >= Board.PASS || (board.movesMask(curPlayer) & Board.bit(square)) == 0) {
+            throw new ReversiException("This move is not possible.");
+        }
+        char player = curPlayer;
+        board.changeCells(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, player);
+        for (GameListener listener : listeners) {
+            listener.moveApplied(this, player, square);
+        }
+        curPlayer = Board.opponent(player);
+        nextTurn();
+    }
+
+    /**
+     * Takes back the moves up to and including the last move of the player, so it is his turn again.
+     * @param player the color of the player who wants to undo his move.
+     * @return false, if the game is not running or the player has not made any move yet.
+     */
+    boolean undo(char player) {
+        if (state != State.TURN || !board.undoMove(player)) {
+            return false;
+        }
+        curPlayer = player;
+        for (GameListener listener : listeners) {
+            listener.moveUndone(this, player);
+        }
+        nextTurn();
+        return true;
+    }
+
+    /**
+     * Passes for the player to move if he has no moves, then starts his turn or ends the game.
+     */
+    private void nextTurn() {
+        board.possibleMoves(curPlayer, moves);
+        if (moves.isEmpty()) {
+            // Only a player without moves makes the game end check necessary.
+            if (board.isTerminal()) {
+                state = State.OVER;
+                int black = board.countChips(Board.BLACK_CHIP);
+                int white = board.countChips(Board.WHITE_CHIP);
+                for (GameListener listener : listeners) {
+                    listener.gameOver(this, black, white);
+                }
+                return;
+            }
+            board.makeMove(Board.PASS, curPlayer);
+            for (GameListener listener : listeners) {
+                listener.passed(this, curPlayer);
+            }
+            curPlayer = Board.opponent(curPlayer);
+            board.possibleMoves(curPlayer, moves);
+        }
+        state = State.TURN;
+        for (GameListener listener : listeners) {
+            listener.turnStarted(this, curPlayer, moves);
+        }
+    }
+
+    /**
+     * @return the position; it must not be changed by anybody but the session.
+     */
+    Board board() {
+        return board;
+    }
+
+    /**
+     * @return the color of the player to move.
+     */
+    char curPlayer() {
+        return curPlayer;
+    }
+
+    /**
+     * @return the legal moves of the player to move.
+     */
+    MoveList moves() {
+        return moves;
+    }
+
+    /**
+     * @return the state of the session.
+     */
+    State state() {
+        return state;
+    }
+
+    /**
+     * @return true, if neither player can move any more.
+     */
+    boolean isOver() {
+        return state == State.OVER;
+    }
+}
@@ -6,4 +6,12 @@ package org.example;
 public interface IEvaluatable {
     static void evaluate(int i, int j, Board board, char curPlayer) {
     }
+
+    /**
+     * Chooses the move of the computer.
+     * @param board the field on which the game is played.
+     * @param curPlayer the color of current player.
+     * @return the square index (i * 8 + j) of the chosen move or Board.PASS if there are no moves.
+     */
+    int bestMove(Board board, char curPlayer);
 }
@@ -0,0 +1,115 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes the search metrics as the MBean "org.example:type=Search" of the platform MBean server.
+ */
+public class JmxSink implements MetricsSink, JmxSinkMBean {
+
+    static final String NAME = "org.example:type=Search";
+
+    private static JmxSink instance;
+
+    private long moves;
+
+    private long totalNodes;
+
+    private long totalNanos;
+
+    private volatile SearchReport last;
+
+    private JmxSink() {
+    }
+
+    /**
+     * Registers the MBean on first use.
+     * @return the sink shared by all the bots.
+     * @throws IllegalArgumentException if the MBean can not be registered.
+     */
+    static synchronized JmxSink register() {
+        if (instance == null) {
+            var sink = new JmxSink();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(sink, new ObjectName(NAME));
+            } catch (JMException ex) {
+                throw new IllegalArgumentException("The search MBean can not be registered: " + ex.getMessage(), ex);
+            }
+            instance = sink;
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void report(SearchReport report) {
+        ++moves;
+        totalNodes += report.nodes;
+        totalNanos += report.nanos;
+        last = report;
+    }
+
+    @Override
+    public synchronized long getMoves() {
+        return moves;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return totalNodes;
+    }
+
+    @Override
+    public synchronized double getAverageNodesPerSecond() {
+        return totalNanos == 0 ? 0 : totalNodes * 1e9 / totalNanos;
+    }
+
+    @Override
+    public long getLastNodes() {
+        SearchReport report = last;
+        return report == null ? 0 : report.nodes;
+    }
+
+    @Override
+    public double getLastNodesPerSecond() {
+        SearchReport report = last;
+        return report == null ? 0 : report.nodesPerSecond();
+    }
+
+    @Override
+    public int getLastDepth() {
+        SearchReport report = last;
+        return report == null ? 0 : report.depth;
+    }
+
+    @Override
+    public double getLastMillis() {
+        SearchReport report = last;
+        return report == null ? 0 : report.millis();
+    }
+
+    @Override
+    public double getLastTtHitRate() {
+        SearchReport report = last;
+        return report == null ? 0 : report.ttHitRate();
+    }
+
+    @Override
+    public long getLastCutoffs() {
+        SearchReport report = last;
+        return report == null ? 0 : report.cutoffs;
+    }
+
+    @Override
+    public double getLastFirstMoveCutoffRate() {
+        SearchReport report = last;
+        return report == null ? 0 : report.firstMoveCutoffRate();
+    }
+
+    @Override
+    public String getLastPrincipalVariation() {
+        SearchReport report = last;
+        return report == null ? "" : report.pvString();
+    }
+}
@@ -0,0 +1,29 @@
+package org.example;
+
+/**
+ * Management interface of JmxSink: the last move and the totals since the start.
+ */
+public interface JmxSinkMBean {
+
+    long getMoves();
+
+    long getTotalNodes();
+
+    double getAverageNodesPerSecond();
+
+    long getLastNodes();
+
+    double getLastNodesPerSecond();
+
+    int getLastDepth();
+
+    double getLastMillis();
+
+    double getLastTtHitRate();
+
+    long getLastCutoffs();
+
+    double getLastFirstMoveCutoffRate();
+
+    String getLastPrincipalVariation();
+}
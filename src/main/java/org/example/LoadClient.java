@@ -0,0 +1,256 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Load generator for GameServer: many connections on one selector, each playing random legal moves.
+ * Measures the latency from sending a move to receiving the next turn (the server and the opponent's reply)
+ * and reports its percentiles. Usage: LoadClient [host] [port] [connections] [mode] [gamesPerConnection]
+ */
+public class LoadClient {
+
+    /**
+     * State of one simulated player.
+     */
+    private static final class Player {
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer input = ByteBuffer.allocate(1024);
+
+        private ByteBuffer output = ByteBuffer.allocate(0);
+
+        private int gamesLeft;
+
+        /**
+         * The color of the current game (from START); both players of a pvp game see its END.
+         */
+        private char color;
+
+        /**
+         * Time the last move was sent, 0 if no answer is awaited.
+         */
+        private long moveSent;
+
+        /**
+         * Player constructor.
+         * @param channel the connection.
+         * @param games the amount of games to play.
+         */
+        Player(SocketChannel channel, int games) {
+            this.channel = channel;
+            this.gamesLeft = games;
+        }
+    }
+
+    private final String mode;
+
+    private final SplittableRandom random = new SplittableRandom(21);
+
+    private long[] latencies = new long[1 << 16];
+
+    private int samples;
+
+    private int games;
+
+    private int errors;
+
+    private int active;
+
+    /**
+     * LoadClient constructor.
+     * @param mode the game mode ("easy", "medium" or "pvp").
+     */
+    LoadClient(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Runs the load until every connection has played its games.
+     * @param address the server address.
+     * @param connections the amount of connections.
+     * @param gamesPerConnection the amount of games of every connection.
+     * @throws IOException if the server can not be reached.
+     */
+    void run(InetSocketAddress address, int connections, int gamesPerConnection) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (int k = 0; k < connections; ++k) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                var player = new Player(channel, gamesPerConnection);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, player);
+                send(key, player, "NEW " + mode);
+                ++active;
+            }
+            while (active > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    var player = (Player) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        player.channel.write(player.output);
+                        if (!player.output.hasRemaining()) {
+                            key.interestOps(SelectionKey.OP_READ);
+                        }
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(key, player);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the server lines of a player and answers them.
+     * @param key the key of the player.
+     * @param player the player.
+     * @throws IOException if the connection failed.
+     */
+    private void read(SelectionKey key, Player player) throws IOException {
+        if (player.channel.read(player.input) < 0) {
+            ++errors;
+            finish(key, player);
+            return;
+        }
+        player.input.flip();
+        int start = 0;
+        for (int k = 0; k < player.input.limit(); ++k) {
+            if (player.input.get(k) == '\n') {
+                String line = new String(player.input.array(), start, k - start, StandardCharsets.UTF_8);
+                start = k + 1;
+                handle(key, player, line);
+                if (!key.isValid()) {
+                    return;
+                }
+            }
+        }
+        player.input.position(start);
+        player.input.compact();
+    }
+
+    /**
+     * Answers one server line.
+     * @param key the key of the player.
+     * @param player the player.
+     * @param line the line.
+     * @throws IOException if the connection failed.
+     */
+    private void handle(SelectionKey key, Player player, String line) throws IOException {
+        String[] words = line.split(" ");
+        switch (words[0]) {
+            case "TURN" -> {
+                record(player);
+                String move = words[2 + random.nextInt(words.length - 2)];
+                player.moveSent = System.nanoTime();
+                send(key, player, "MOVE " + move);
+            }
+            case "START" -> player.color = words[1].charAt(0);
+            case "END" -> {
+                record(player);
+                if (player.color == Board.BLACK_CHIP) {
+                    ++games;
+                }
+                if (--player.gamesLeft > 0) {
+                    send(key, player, "NEW " + mode);
+                } else {
+                    finish(key, player);
+                }
+            }
+            case "ERR" -> {
+                ++errors;
+                finish(key, player);
+            }
+            default -> {
+                // WAIT, MOVED and BOARD need no answer.
+            }
+        }
+    }
+
+    /**
+     * Records the latency of the awaited answer.
+     * @param player the player.
+     */
+    private void record(Player player) {
+        if (player.moveSent != 0) {
+            if (samples == latencies.length) {
+                latencies = Arrays.copyOf(latencies, samples * 2);
+            }
+            latencies[samples++] = System.nanoTime() - player.moveSent;
+            player.moveSent = 0;
+        }
+    }
+
+    /**
+     * Sends a line to the server.
+     * @param key the key of the player.
+     * @param player the player.
+     * @param line the line without the line break.
+     * @throws IOException if the connection failed.
+     */
+    private void send(SelectionKey key, Player player, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        var output = ByteBuffer.allocate(player.output.remaining() + bytes.length);
+        output.put(player.output).put(bytes).flip();
+        player.output = output;
+        player.channel.write(player.output);
+        if (player.output.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes the connection of a player.
+     * @param key the key of the player.
+     * @param player the player.
+     * @throws IOException if the connection can not be closed.
+     */
+    private void finish(SelectionKey key, Player player) throws IOException {
+        key.cancel();
+        player.channel.close();
+        --active;
+    }
+
+    /**
+     * @param fraction the percentile as a fraction, for example 0.99.
+     * @return the latency percentile in milliseconds (samples must be sorted).
+     */
+    private double percentile(double fraction) {
+        if (samples == 0) {
+            return 0;
+        }
+        int index = Math.min(samples - 1, (int) Math.ceil(fraction * samples) - 1);
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        String mode = args.length > 3 ? args[3] : "easy";
+        int gamesPerConnection = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        var client = new LoadClient(mode);
+        long start = System.nanoTime();
+        client.run(new InetSocketAddress(host, port), connections, gamesPerConnection);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(client.latencies, 0, client.samples);
+        System.out.printf("%d games, %d errors in %.1f s (%.1f games/sec), %d moves%n",
+                client.games, client.errors, seconds, client.games / seconds, client.samples);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                client.percentile(0.5), client.percentile(0.9), client.percentile(0.99),
+                client.percentile(0.999), client.percentile(1.0));
+    }
+}
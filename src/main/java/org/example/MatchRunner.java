@@ -0,0 +1,212 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Headless match between two engines: plays the games concurrently without console I/O
+ * and reports win/draw/loss, disc differential, Elo estimate and games per second.
+ * Games are played in pairs from the same random opening with swapped colors.
+ * Usage: MatchRunner engineA engineB [games] [threads] [openingPlies],
+ * where an engine is "easy", "medium" or "search:millisPerMove".
+ */
+public class MatchRunner {
+
+    private final Supplier<IEvaluatable> engineA;
+
+    private final Supplier<IEvaluatable> engineB;
+
+    private final int threads;
+
+    private final int openingPlies;
+
+    /**
+     * MatchRunner constructor.
+     * @param engineA the factory of the first engine (one instance per thread).
+     * @param engineB the factory of the second engine (one instance per thread).
+     * @param threads the amount of games played at the same time.
+     * @param openingPlies the amount of random moves played before the engines take over.
+     */
+    MatchRunner(Supplier<IEvaluatable> engineA, Supplier<IEvaluatable> engineB, int threads, int openingPlies) {
+        this.engineA = engineA;
+        this.engineB = engineB;
+        this.threads = threads;
+        this.openingPlies = openingPlies;
+    }
+
+    /**
+     * Plays the match.
+     * @param games the amount of games (rounded up to an even number).
+     * @param seed the seed of the random openings.
+     * @return the results from the point of view of the first engine.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    MatchResult play(int games, long seed) throws InterruptedException {
+        ThreadLocal<IEvaluatable> localA = ThreadLocal.withInitial(engineA);
+        ThreadLocal<IEvaluatable> localB = ThreadLocal.withInitial(engineB);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        var pairs = new ArrayList<Future<int[]>>();
+        long start = System.nanoTime();
+        try {
+            for (int pair = 0; pair < (games + 1) / 2; ++pair) {
+                long pairSeed = seed + pair;
+                pairs.add(pool.submit(() -> {
+                    int first = playGame(localA.get(), localB.get(), openingPlies, new SplittableRandom(pairSeed));
+                    int second = -playGame(localB.get(), localA.get(), openingPlies, new SplittableRandom(pairSeed));
+                    return new int[]{first, second};
+                }));
+            }
+            var result = new MatchResult();
+            for (Future<int[]> pair : pairs) {
+                for (int diff : pair.get()) {
+                    result.add(diff);
+                }
+            }
+            result.seconds = (System.nanoTime() - start) / 1e9;
+            return result;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A game failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game until both players have to pass.
+     * @param black the engine playing black.
+     * @param white the engine playing white.
+     * @param openingPlies the amount of random moves played first.
+     * @param random the source of the random opening.
+     * @return the final disc difference (black minus white).
+     */
+    static int playGame(IEvaluatable black, IEvaluatable white, int openingPlies, SplittableRandom random) {
+        return playGame(new Board(), black, white, openingPlies, random);
+    }
+
+    /**
+     * Plays one game on the given board; the moves stay in its undo stack.
+     * @param board the start position of the game (black to move).
+     * @param black the engine playing black.
+     * @param white the engine playing white.
+     * @param openingPlies the amount of random moves played first.
+     * @param random the source of the random opening.
+     * @return the final disc difference (black minus white).
+     */
+    static int playGame(Board board, IEvaluatable black, IEvaluatable white, int openingPlies, SplittableRandom random) {
+        char player = Board.BLACK_CHIP;
+        int ply = 0;
+        while (true) {
+            long moves = board.movesMask(player);
+            if (moves == 0) {
+                if (board.isTerminal()) {
+                    break;
+                }
+                board.makeMove(Board.PASS, player);
+            } else {
+                int square;
+                if (ply < openingPlies) {
+                    for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; --skip) {
+                        moves &= moves - 1;
+                    }
+                    square = Long.numberOfTrailingZeros(moves);
+                } else {
+                    square = (player == Board.BLACK_CHIP ? black : white).bestMove(board, player);
+                }
+                board.makeMove(square, player);
+            }
+            ++ply;
+            player = Board.opponent(player);
+        }
+        return board.countChips(Board.BLACK_CHIP) - board.countChips(Board.WHITE_CHIP);
+    }
+
+    /**
+     * Creates an engine factory by its name.
+     * @param name "easy", "medium" or "search:millisPerMove".
+     * @return the factory.
+     */
+    static Supplier<IEvaluatable> engine(String name) {
+        if (name.equals("easy")) {
+            return AI::new;
+        }
+        if (name.equals("medium")) {
+            return SearchAI::new;
+        }
+        if (name.startsWith("search:")) {
+            long millis = Long.parseLong(name.substring("search:".length()));
+            return () -> new SearchAI(millis, Long.MAX_VALUE, 60, 16, 1, 14);
+        }
+        throw new IllegalArgumentException("Unknown engine: " + name);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: MatchRunner engineA engineB [games] [threads] [openingPlies]");
+            return;
+        }
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int openingPlies = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        var runner = new MatchRunner(engine(args[0]), engine(args[1]), threads, openingPlies);
+        MatchResult result = runner.play(games, 1);
+        System.out.printf("%s vs %s: %s%n", args[0], args[1], result);
+    }
+
+    /**
+     * Results of a match from the point of view of the first engine.
+     */
+    static class MatchResult {
+
+        int wins;
+
+        int draws;
+
+        int losses;
+
+        long discDifference;
+
+        double seconds;
+
+        /**
+         * Adds the result of one game.
+         * @param diff the final disc difference of the game.
+         */
+        void add(int diff) {
+            if (diff > 0) {
+                ++wins;
+            } else if (diff < 0) {
+                ++losses;
+            } else {
+                ++draws;
+            }
+            discDifference += diff;
+        }
+
+        /**
+         * @return the amount of games.
+         */
+        int games() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * Elo difference that corresponds to the score (wins plus half of the draws).
+         * @return the Elo estimate, infinite if one of the engines won every game.
+         */
+        double elo() {
+            double score = (wins + draws / 2.0) / games();
+            return 400 * Math.log10(score / (1 - score));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%d =%d -%d, average disc differential %+.2f, Elo %+.0f, %.2f games/sec",
+                    wins, draws, losses, (double) discDifference / games(), elo(), games() / seconds);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Receiver of the search metrics of every move.
+ */
+interface MetricsSink {
+
+    /**
+     * Takes the metrics of a finished search. Called on the thread that asked for the move.
+     * @param report the metrics.
+     */
+    void report(SearchReport report);
+
+    /**
+     * Creates a sink by its description.
+     * @param spec "console", "csv:fileName" or "jmx".
+     * @return the sink.
+     * @throws IllegalArgumentException if the description is unknown or the sink can not be created.
+     */
+    static MetricsSink of(String spec) {
+        if (spec.equals("console")) {
+            return new ConsoleSink();
+        }
+        if (spec.startsWith("csv:")) {
+            try {
+                return new CsvSink(Path.of(spec.substring("csv:".length())));
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("The metrics file can not be opened: " + ex.getMessage(), ex);
+            }
+        }
+        if (spec.equals("jmx")) {
+            return JmxSink.register();
+        }
+        throw new IllegalArgumentException("Unknown metrics sink: " + spec);
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the bitboard move generation of Board against a plain reference on a char grid
+ * that walks the eight directions square by square, over random playouts:
+ * the legal moves, the position after every move, the position after the move is taken back
+ * and the display grid.
+ * Usage: MoveGenerationCheck [playouts] [seed]
+ */
+public class MoveGenerationCheck {
+
+    private static final int[][] DIRECTIONS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    /**
+     * Reference flips of a move: the opponent chips enclosed in every direction.
+     * @param grid the position.
+     * @param i the row of the move.
+     * @param j the column of the move.
+     * @param player the color of the player who moves.
+     * @return the mask of the flipped chips, 0 if the move is not legal.
+     */
+    static long referenceFlips(char[][] grid, int i, int j, char player) {
+        if (grid[i][j] != Board.EMPTY_CELL) {
+            return 0;
+        }
+        char opponent = Board.opponent(player);
+        long flipped = 0;
+        for (int[] direction : DIRECTIONS) {
+            long line = 0;
+            int r = i + direction[0];
+            int c = j + direction[1];
+            while (r >= 0 && r < Board.BOARD_SIZE && c >= 0 && c < Board.BOARD_SIZE && grid[r][c] == opponent) {
+                line |= Board.bit(r * Board.BOARD_SIZE + c);
+                r += direction[0];
+                c += direction[1];
+            }
+            if (r >= 0 && r < Board.BOARD_SIZE && c >= 0 && c < Board.BOARD_SIZE && grid[r][c] == player) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * @param board the board.
+     * @return the chips of the board as a char grid built from its bitboards.
+     */
+    private static char[][] gridOf(Board board) {
+        char[][] grid = new char[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        long black = board.chips(Board.BLACK_CHIP);
+        long white = board.chips(Board.WHITE_CHIP);
+        for (int square = 0; square < Board.BOARD_SIZE * Board.BOARD_SIZE; ++square) {
+            long b = Board.bit(square);
+            grid[square / Board.BOARD_SIZE][square % Board.BOARD_SIZE] =
+                    (black & b) != 0 ? Board.BLACK_CHIP : (white & b) != 0 ? Board.WHITE_CHIP : Board.EMPTY_CELL;
+        }
+        return grid;
+    }
+
+    /**
+     * Plays random games and compares every position with the reference.
+     * @param playouts the amount of games.
+     * @param seed the seed of the random moves.
+     * @return the amount of positions that differ from the reference.
+     */
+    static long check(int playouts, long seed) {
+        var random = new SplittableRandom(seed);
+        long positions = 0;
+        long mismatches = 0;
+        for (int game = 0; game < playouts; ++game) {
+            var board = new Board();
+            char player = Board.BLACK_CHIP;
+            while (!board.isTerminal()) {
+                ++positions;
+                char[][] grid = gridOf(board);
+                long expected = 0;
+                for (int square = 0; square < Board.BOARD_SIZE * Board.BOARD_SIZE; ++square) {
+                    if (referenceFlips(grid, square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, player) != 0) {
+                        expected |= Board.bit(square);
+                    }
+                }
+                long moves = board.movesMask(player);
+                if (moves != expected) {
+                    ++mismatches;
+                    System.out.printf("Moves differ in %s: %x instead of %x%n",
+                            Position.of(board, player), moves, expected);
+                    break;
+                }
+                if (moves == 0) {
+                    board.makeMove(Board.PASS, player);
+                } else {
+                    for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; --skip) {
+                        moves &= moves - 1;
+                    }
+                    int square = Long.numberOfTrailingZeros(moves);
+                    long black = board.chips(Board.BLACK_CHIP);
+                    long white = board.chips(Board.WHITE_CHIP);
+                    long flips = referenceFlips(grid, square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, player);
+                    long placed = flips | Board.bit(square);
+                    long expectedBlack = player == Board.BLACK_CHIP ? black | placed : black & ~flips;
+                    long expectedWhite = player == Board.WHITE_CHIP ? white | placed : white & ~flips;
+                    board.makeMove(square, player);
+                    boolean same = board.chips(Board.BLACK_CHIP) == expectedBlack
+                            && board.chips(Board.WHITE_CHIP) == expectedWhite;
+                    board.unmakeMove();
+                    same &= board.chips(Board.BLACK_CHIP) == black && board.chips(Board.WHITE_CHIP) == white;
+                    // The game goes on through changeCells, which also keeps the display grid.
+                    board.changeCells(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, player);
+                    same &= Arrays.deepEquals(board.grid, gridOf(board));
+                    if (!same) {
+                        ++mismatches;
+                        System.out.printf("The move %s differs after %d positions%n",
+                                SearchReport.squareName(square), positions);
+                        break;
+                    }
+                }
+                player = Board.opponent(player);
+            }
+        }
+        System.out.printf("%d playouts, %d positions, %d mismatches%n", playouts, positions, mismatches);
+        return mismatches;
+    }
+
+    public static void main(String[] args) {
+        int playouts = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        if (check(playouts, seed) != 0) {
+            System.out.println("Move generation is wrong!");
+            System.exit(1);
+        }
+        System.out.println("Move generation matches the reference.");
+    }
+}
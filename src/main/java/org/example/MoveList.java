@@ -0,0 +1,64 @@
+package org.example;
+
+/**
+ * Reusable list of moves stored as square indices (i * 8 + j) in a primitive buffer.
+ */
+public class MoveList {
+
+    /**
+     * A position never has more than 64 legal moves.
+     */
+    private final int[] squares = new int[Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private int size;
+
+    /**
+     * Refills the list with the moves of the mask in row-major order.
+     * @param mask the mask of moves (bit i * 8 + j).
+     */
+    void fill(long mask) {
+        size = 0;
+        while (mask != 0) {
+            squares[size++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+    }
+
+    /**
+     * @return the amount of moves in the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true, if there are no moves in the list.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param k the index of the move in the list.
+     * @return the square index of the move.
+     */
+    int square(int k) {
+        return squares[k];
+    }
+
+    /**
+     * @param k the index of the move in the list.
+     * @return the row of the move.
+     */
+    int row(int k) {
+        return squares[k] / Board.BOARD_SIZE;
+    }
+
+    /**
+     * @param k the index of the move in the list.
+     * @return the column of the move.
+     */
+    int col(int k) {
+        return squares[k] % Board.BOARD_SIZE;
+    }
+}
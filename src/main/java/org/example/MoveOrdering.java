@@ -0,0 +1,158 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Move ordering of one search thread. The searcher tries the transposition table move first;
+ * the other moves are ordered here: the killer moves of the ply, then by the mobility they leave
+ * to the opponent (if the remaining depth is large enough) and by history score.
+ * Keeps the cutoff statistics: the share of cutoffs produced by the first move searched
+ * tells how good the ordering is.
+ */
+class MoveOrdering {
+
+    /**
+     * Plies of the search tree, passes included.
+     */
+    static final int MAX_PLY = 128;
+
+    private static final int KILLER_SCORE = 1 << 29;
+
+    /**
+     * Below this remaining depth the opponent mobility is not computed: the history alone orders the moves.
+     */
+    private static final int MOBILITY_DEPTH = 2;
+
+    private static final int MOBILITY_WEIGHT = 1 << 16;
+
+    /**
+     * History scores are kept below this, so they never outweigh the mobility and the killers.
+     */
+    private static final int HISTORY_LIMIT = 1 << 15;
+
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    /**
+     * History scores by color (0 black, 1 white) and square.
+     */
+    private final int[][] history = new int[2][Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    /**
+     * Ordered moves and their scores by ply.
+     */
+    private final int[][] moves = new int[MAX_PLY][Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private final int[] scores = new int[Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    private long cutoffs;
+
+    private long firstMoveCutoffs;
+
+    /**
+     * MoveOrdering constructor.
+     */
+    MoveOrdering() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Board.PASS);
+        }
+    }
+
+    /**
+     * Prepares for the search of a new move: forgets the killers, ages the history and resets the statistics.
+     */
+    void newSearch() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Board.PASS);
+        }
+        for (int[] colorHistory : history) {
+            for (int square = 0; square < colorHistory.length; ++square) {
+                colorHistory[square] >>= 1;
+            }
+        }
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Orders the moves of a node.
+     * @param board the position of the node.
+     * @param player the color of the player to move.
+     * @param mask the moves to order.
+     * @param ply the distance from the root.
+     * @param depth the remaining depth.
+     * @return the moves of the ply (valid until the ply is ordered again), the first Long.bitCount(mask) are used.
+     */
+    int[] order(Board board, char player, long mask, int ply, int depth) {
+        int[] plyMoves = moves[ply];
+        int[] plyKillers = killers[ply];
+        int[] colorHistory = history[player == Board.BLACK_CHIP ? 0 : 1];
+        long own = board.chips(player);
+        long opp = board.chips(Board.opponent(player));
+        int count = 0;
+        for (long m = mask; m != 0; m &= m - 1) {
+            int square = Long.numberOfTrailingZeros(m);
+            int score;
+            if (square == plyKillers[0] || square == plyKillers[1]) {
+                score = square == plyKillers[0] ? KILLER_SCORE + 1 : KILLER_SCORE;
+            } else {
+                score = colorHistory[square];
+                if (depth >= MOBILITY_DEPTH) {
+                    long flipped = Board.flips(own, opp, square);
+                    long mobility = Board.generateMoves(opp & ~flipped, own | flipped | Board.bit(square));
+                    score -= MOBILITY_WEIGHT * Long.bitCount(mobility);
+                }
+            }
+            // Insertion by score: the lists are short.
+            int k = count++;
+            while (k > 0 && scores[k - 1] < score) {
+                scores[k] = scores[k - 1];
+                plyMoves[k] = plyMoves[k - 1];
+                --k;
+            }
+            scores[k] = score;
+            plyMoves[k] = square;
+        }
+        return plyMoves;
+    }
+
+    /**
+     * Records a beta cutoff: the move becomes a killer of the ply and gains history.
+     * @param player the color of the player who made the move.
+     * @param square the move.
+     * @param ply the distance from the root.
+     * @param depth the remaining depth.
+     * @param moveNumber the number of the move in the ordered list, from 0.
+     */
+    void cutoff(char player, int square, int ply, int depth, int moveNumber) {
+        ++cutoffs;
+        if (moveNumber == 0) {
+            ++firstMoveCutoffs;
+        }
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != square) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = square;
+        }
+        int[] colorHistory = history[player == Board.BLACK_CHIP ? 0 : 1];
+        colorHistory[square] += depth * depth;
+        if (colorHistory[square] >= HISTORY_LIMIT) {
+            for (int s = 0; s < colorHistory.length; ++s) {
+                colorHistory[s] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * @return the amount of beta cutoffs since the last newSearch.
+     */
+    long cutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return the amount of beta cutoffs produced by the first move searched.
+     */
+    long firstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+}
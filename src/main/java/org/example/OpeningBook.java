@@ -0,0 +1,122 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book, memory-mapped from a binary file.
+ * Positions are keyed by Symmetry.canonicalKey, so every position is stored once for all its symmetric images.
+ * File layout (big-endian): header MAGIC, VERSION, entry count; then entries sorted by key and move,
+ * each ENTRY_BYTES long: key (long), canonical move, games, score in half points, disc difference sum (ints).
+ */
+public class OpeningBook {
+
+    static final int MAGIC = 0x52564243;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 12;
+
+    static final int ENTRY_BYTES = 24;
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    /**
+     * OpeningBook constructor.
+     * @param buffer the book contents (header included).
+     * @throws IOException if the contents are not an opening book.
+     */
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        if ((long) HEADER_BYTES + (long) count * ENTRY_BYTES > buffer.limit()) {
+            throw new IOException("The opening book is truncated");
+        }
+    }
+
+    /**
+     * Maps the book file into memory. The file is not read: pages are loaded on lookups.
+     * @param path the book file.
+     * @return the book.
+     * @throws IOException if the file can not be mapped or is not a book.
+     */
+    static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the amount of (position, move) entries.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Chooses the book move with the best average result.
+     * @param board the field on which the game is played.
+     * @param curPlayer the color of the player to move.
+     * @param minGames the minimal amount of games for a move to be trusted.
+     * @return the square of the move or -1 if the position is not in the book.
+     */
+    int bestMove(Board board, char curPlayer, int minGames) {
+        long own = board.chips(curPlayer);
+        long opp = board.chips(Board.opponent(curPlayer));
+        int symmetry = Symmetry.canonicalSymmetry(own, opp);
+        long key = Board.hash(Symmetry.transform(own, symmetry), Symmetry.transform(opp, symmetry));
+        int best = -1;
+        double bestScore = -1;
+        for (int index = firstIndex(key); index < count && keyAt(index) == key; ++index) {
+            int offset = HEADER_BYTES + index * ENTRY_BYTES;
+            int games = buffer.getInt(offset + 12);
+            if (games < minGames) {
+                continue;
+            }
+            double score = buffer.getInt(offset + 16) / (2.0 * games);
+            if (score > bestScore) {
+                bestScore = score;
+                best = Symmetry.inverseSquare(buffer.getInt(offset + 8), symmetry);
+            }
+        }
+        if (best >= 0 && (board.movesMask(curPlayer) & Board.bit(best)) == 0) {
+            return -1;
+        }
+        return best;
+    }
+
+    /**
+     * Binary search of the first entry with the key.
+     * @param key the position key.
+     * @return the index of the first entry with a key not less than the given one.
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index the index of the entry.
+     * @return the key of the entry.
+     */
+    private long keyAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+}
@@ -0,0 +1,156 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Grows an opening book from played games and writes it in the OpeningBook format.
+ * Usage: OpeningBookBuilder bookFile [games] [engine] [bookPlies]
+ * adds self-play games of the engine (random first moves for variety) to the book file.
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Statistics of one (position, move) pair.
+     */
+    private static final class MoveStats {
+
+        private int games;
+
+        private int halfPoints;
+
+        private int discSum;
+    }
+
+    /**
+     * Entry key: canonical position key and canonical move.
+     */
+    private record EntryKey(long key, int move) {
+    }
+
+    private final Map<EntryKey, MoveStats> entries = new HashMap<>();
+
+    private final int bookPlies;
+
+    /**
+     * OpeningBookBuilder constructor.
+     * @param bookPlies the amount of first moves of every game that are added to the book.
+     */
+    OpeningBookBuilder(int bookPlies) {
+        this.bookPlies = bookPlies;
+    }
+
+    /**
+     * Adds the entries of an existing book file (if it exists).
+     * @param path the book file.
+     * @throws IOException if the file is not a book.
+     */
+    void load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.limit() < OpeningBook.HEADER_BYTES || buffer.getInt(0) != OpeningBook.MAGIC) {
+            throw new IOException("Not an opening book: " + path);
+        }
+        int count = buffer.getInt(8);
+        for (int index = 0; index < count; ++index) {
+            int offset = OpeningBook.HEADER_BYTES + index * OpeningBook.ENTRY_BYTES;
+            var stats = entries.computeIfAbsent(new EntryKey(buffer.getLong(offset), buffer.getInt(offset + 8)),
+                    k -> new MoveStats());
+            stats.games += buffer.getInt(offset + 12);
+            stats.halfPoints += buffer.getInt(offset + 16);
+            stats.discSum += buffer.getInt(offset + 20);
+        }
+    }
+
+    /**
+     * Adds the first moves of a finished game.
+     * @param board the board with the moves of the game in its undo stack (from the start position).
+     * @param blackDiff the final disc difference (black minus white).
+     */
+    void addGame(Board board, int blackDiff) {
+        var replay = new Board();
+        int plies = Math.min(bookPlies, board.movesMade());
+        for (int k = 0; k < plies; ++k) {
+            int square = board.moveAt(k);
+            char player = board.playerAt(k);
+            if (square != Board.PASS) {
+                long own = replay.chips(player);
+                long opp = replay.chips(Board.opponent(player));
+                int symmetry = Symmetry.canonicalSymmetry(own, opp);
+                long key = Board.hash(Symmetry.transform(own, symmetry), Symmetry.transform(opp, symmetry));
+                int move = Symmetry.transformSquare(square, symmetry);
+                int diff = player == Board.BLACK_CHIP ? blackDiff : -blackDiff;
+                var stats = entries.computeIfAbsent(new EntryKey(key, move), e -> new MoveStats());
+                ++stats.games;
+                stats.halfPoints += diff > 0 ? 2 : diff == 0 ? 1 : 0;
+                stats.discSum += diff;
+            }
+            replay.makeMove(square, player);
+        }
+    }
+
+    /**
+     * Writes the book sorted by key and move; the file is replaced atomically.
+     * @param path the book file.
+     * @throws IOException if the file can not be written.
+     */
+    void write(Path path) throws IOException {
+        var keys = new ArrayList<>(entries.keySet());
+        keys.sort((a, b) -> a.key() != b.key() ? Long.compare(a.key(), b.key()) : Integer.compare(a.move(), b.move()));
+        Path parent = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, "book", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(keys.size());
+            for (EntryKey key : keys) {
+                MoveStats stats = entries.get(key);
+                out.writeLong(key.key());
+                out.writeInt(key.move());
+                out.writeInt(stats.games);
+                out.writeInt(stats.halfPoints);
+                out.writeInt(stats.discSum);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the amount of (position, move) entries.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: OpeningBookBuilder bookFile [games] [engine] [bookPlies]");
+            return;
+        }
+        Path path = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        var engine = MatchRunner.engine(args.length > 2 ? args[2] : "search:50").get();
+        int bookPlies = args.length > 3 ? Integer.parseInt(args[3]) : 14;
+        var builder = new OpeningBookBuilder(bookPlies);
+        builder.load(path);
+        var random = new SplittableRandom(System.nanoTime());
+        for (int game = 0; game < games; ++game) {
+            var board = new Board();
+            int diff = MatchRunner.playGame(board, engine, engine, 4, random);
+            builder.addGame(board, diff);
+        }
+        builder.write(path);
+        System.out.printf("The book %s has %d entries.%n", path, builder.size());
+    }
+}
@@ -0,0 +1,250 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Table-driven evaluation: the sum of the weights of the pattern indices kept by Board
+ * plus a mobility term, with a separate weight set for every game phase.
+ * Weights are in evaluation points from black's point of view and load from a binary file
+ * (big-endian): MAGIC, VERSION, PHASES, then for every phase the mobility weight
+ * and the weights of every pattern type in Patterns order (floats).
+ */
+public class PatternEvaluator {
+
+    static final int MAGIC = 0x52565754;
+
+    static final int VERSION = 1;
+
+    static final int PHASES = 4;
+
+    /**
+     * Weights loaded by the bots if the file exists (written by WeightTrainer).
+     */
+    static final Path WEIGHTS_FILE = Path.of("reversi.weights");
+
+    private static PatternEvaluator standard;
+
+    /**
+     * Weights by phase, pattern type and index.
+     */
+    private final int[][][] weights = new int[PHASES][Patterns.TYPES][];
+
+    private final int[] mobilityWeights = new int[PHASES];
+
+    /**
+     * PatternEvaluator constructor.
+     * @param weights the weights by phase, pattern type and index.
+     * @param mobilityWeights the mobility weight of every phase.
+     */
+    PatternEvaluator(float[][][] weights, float[] mobilityWeights) {
+        for (int phase = 0; phase < PHASES; ++phase) {
+            this.mobilityWeights[phase] = Math.round(mobilityWeights[phase]);
+            for (int type = 0; type < Patterns.TYPES; ++type) {
+                this.weights[phase][type] = new int[Patterns.TYPE_SIZE[type]];
+                for (int index = 0; index < Patterns.TYPE_SIZE[type]; ++index) {
+                    this.weights[phase][type][index] = Math.round(weights[phase][type][index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The evaluator used by the bots: the weights file if it exists, the default weights otherwise.
+     * @return the shared evaluator.
+     */
+    static synchronized PatternEvaluator standard() {
+        if (standard == null) {
+            standard = defaults();
+            if (Files.exists(WEIGHTS_FILE)) {
+                try {
+                    standard = load(WEIGHTS_FILE);
+                } catch (IOException ex) {
+                    System.out.println("The evaluation weights can not be read: " + ex.getMessage());
+                }
+            }
+        }
+        return standard;
+    }
+
+    /**
+     * Evaluates the position.
+     * @param board the field on which the game is played.
+     * @param player the color of the player to move.
+     * @return the score from the point of view of the player to move.
+     */
+    int evaluate(Board board, char player) {
+        long black = board.chips(Board.BLACK_CHIP);
+        long white = board.chips(Board.WHITE_CHIP);
+        int phase = phase(Long.bitCount(~(black | white)));
+        int[][] phaseWeights = weights[phase];
+        int score = 0;
+        for (int instance = 0; instance < Patterns.INSTANCES; ++instance) {
+            score += phaseWeights[Patterns.INSTANCE_TYPE[instance]][board.patternIndex(instance)];
+        }
+        int mobility = Long.bitCount(Board.generateMoves(black, white)) - Long.bitCount(Board.generateMoves(white, black));
+        score += mobilityWeights[phase] * mobility;
+        return player == Board.BLACK_CHIP ? score : -score;
+    }
+
+    /**
+     * @param empties the amount of empty squares.
+     * @return the game phase (0 for the opening).
+     */
+    static int phase(int empties) {
+        return Math.min(PHASES - 1, Math.max(0, (60 - empties) / 15));
+    }
+
+    /**
+     * Reads the weights file.
+     * @param path the file.
+     * @return the evaluator.
+     * @throws IOException if the file can not be read or has a wrong format.
+     */
+    static PatternEvaluator load(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != PHASES) {
+                throw new IOException("Not an evaluation weights file: " + path);
+            }
+            float[][][] weights = new float[PHASES][Patterns.TYPES][];
+            float[] mobility = new float[PHASES];
+            for (int phase = 0; phase < PHASES; ++phase) {
+                mobility[phase] = in.readFloat();
+                for (int type = 0; type < Patterns.TYPES; ++type) {
+                    weights[phase][type] = new float[Patterns.TYPE_SIZE[type]];
+                    for (int index = 0; index < Patterns.TYPE_SIZE[type]; ++index) {
+                        weights[phase][type][index] = in.readFloat();
+                    }
+                }
+            }
+            return new PatternEvaluator(weights, mobility);
+        }
+    }
+
+    /**
+     * Writes weights in the file format.
+     * @param path the file.
+     * @param weights the weights by phase, pattern type and index.
+     * @param mobility the mobility weight of every phase.
+     * @throws IOException if the file can not be written.
+     */
+    static void save(Path path, float[][][] weights, float[] mobility) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PHASES);
+            for (int phase = 0; phase < PHASES; ++phase) {
+                out.writeFloat(mobility[phase]);
+                for (int type = 0; type < Patterns.TYPES; ++type) {
+                    for (float weight : weights[phase][type]) {
+                        out.writeFloat(weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Default weights: corners 100, X squares -50 and C squares -20 while their corner is empty,
+     * other edge squares 5, mobility 8 (the weights of the old square table); every square's weight is shared by the instances that contain it.
+     * @return the weights by phase, pattern type and index.
+     */
+    static float[][][] defaultWeights() {
+        float[][][] weights = new float[PHASES][Patterns.TYPES][];
+        int[] instanceOfType = new int[Patterns.TYPES];
+        for (int instance = Patterns.INSTANCES - 1; instance >= 0; --instance) {
+            instanceOfType[Patterns.INSTANCE_TYPE[instance]] = instance;
+        }
+        for (int type = 0; type < Patterns.TYPES; ++type) {
+            int[] squares = Patterns.INSTANCE_SQUARES[instanceOfType[type]];
+            float[] typeWeights = new float[Patterns.TYPE_SIZE[type]];
+            int[] digits = new int[squares.length];
+            for (int index = 0; index < typeWeights.length; ++index) {
+                for (int k = 0, rest = index; k < squares.length; ++k, rest /= 3) {
+                    digits[k] = rest % 3;
+                }
+                float sum = 0;
+                for (int k = 0; k < squares.length; ++k) {
+                    int owners = owners(squares[k], type);
+                    if (digits[k] != 0 && owners != 0) {
+                        float weight = squareWeight(squares[k], squares, digits) / owners;
+                        sum += digits[k] == 1 ? weight : -weight;
+                    }
+                }
+                typeWeights[index] = sum;
+            }
+            for (int phase = 0; phase < PHASES; ++phase) {
+                weights[phase][type] = typeWeights;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @return the evaluator with the default weights.
+     */
+    static PatternEvaluator defaults() {
+        float[] mobility = new float[PHASES];
+        Arrays.fill(mobility, 8);
+        return new PatternEvaluator(defaultWeights(), mobility);
+    }
+
+    /**
+     * @param square the square.
+     * @param type the pattern type.
+     * @return the amount of instances of the type that own the square's default weight (0 if not this type).
+     */
+    private static int owners(int square, int type) {
+        int[] instances = Patterns.SQUARE_INSTANCES[square];
+        int firstType = Patterns.TYPES;
+        for (int instance : instances) {
+            firstType = Math.min(firstType, Patterns.INSTANCE_TYPE[instance]);
+        }
+        if (firstType != type) {
+            return 0;
+        }
+        int count = 0;
+        for (int instance : instances) {
+            if (Patterns.INSTANCE_TYPE[instance] == type) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Weight of a chip on the square for the default weights.
+     * @param square the square of the chip.
+     * @param squares the squares of the instance.
+     * @param digits the states of the squares of the instance.
+     * @return the weight.
+     */
+    private static float squareWeight(int square, int[] squares, int[] digits) {
+        int i = square / Board.BOARD_SIZE;
+        int j = square % Board.BOARD_SIZE;
+        boolean rowEdge = i == 0 || i == 7;
+        boolean colEdge = j == 0 || j == 7;
+        if (rowEdge && colEdge) {
+            return 100;
+        }
+        int cornerI = i < 4 ? 0 : 7;
+        int cornerJ = j < 4 ? 0 : 7;
+        boolean nearCorner = Math.abs(i - cornerI) <= 1 && Math.abs(j - cornerJ) <= 1;
+        if (nearCorner) {
+            int corner = cornerI * Board.BOARD_SIZE + cornerJ;
+            for (int k = 0; k < squares.length; ++k) {
+                if (squares[k] == corner && digits[k] != 0) {
+                    return 0;
+                }
+            }
+            return rowEdge || colEdge ? -20 : -50;
+        }
+        return rowEdge || colEdge ? 5 : 0;
+    }
+}
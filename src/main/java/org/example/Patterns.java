@@ -0,0 +1,94 @@
+package org.example;
+
+/**
+ * Geometry of the evaluation patterns. A pattern instance is an ordered list of squares;
+ * its index is the base-3 number of their states (0 empty, 1 black, 2 white), first square lowest.
+ * Symmetric instances list their squares in the same order, so they share the weights of their type.
+ */
+final class Patterns {
+
+    static final int EDGE = 0;
+
+    static final int CORNER = 1;
+
+    static final int DIAGONAL = 2;
+
+    static final int TYPES = 3;
+
+    /**
+     * Amount of indices of every type (3 to the power of its length).
+     */
+    static final int[] TYPE_SIZE = {6561, 19683, 6561};
+
+    /**
+     * Squares of every instance and the type of every instance.
+     */
+    static final int[][] INSTANCE_SQUARES;
+
+    static final int[] INSTANCE_TYPE;
+
+    static final int INSTANCES;
+
+    /**
+     * For every square: the instances that contain it and its power of 3 in each of them.
+     */
+    static final int[][] SQUARE_INSTANCES = new int[Board.BOARD_SIZE * Board.BOARD_SIZE][];
+
+    static final int[][] SQUARE_POWERS = new int[Board.BOARD_SIZE * Board.BOARD_SIZE][];
+
+    static {
+        int[] edge = {0, 1, 2, 3, 4, 5, 6, 7};
+        int[] corner = {0, 1, 2, 8, 9, 10, 16, 17, 18};
+        int[] diagonal = {0, 9, 18, 27, 36, 45, 54, 63};
+        // The symmetries that move the base instance (top row, top left corner, main diagonal) to the others.
+        int[][] bases = {edge, edge, edge, edge, corner, corner, corner, corner, diagonal, diagonal};
+        int[] types = {EDGE, EDGE, EDGE, EDGE, CORNER, CORNER, CORNER, CORNER, DIAGONAL, DIAGONAL};
+        int[] symmetries = {0, 2, 1, 5, 0, 4, 2, 6, 0, 4};
+        INSTANCES = bases.length;
+        INSTANCE_SQUARES = new int[INSTANCES][];
+        INSTANCE_TYPE = types;
+        int[] counts = new int[Board.BOARD_SIZE * Board.BOARD_SIZE];
+        for (int instance = 0; instance < INSTANCES; ++instance) {
+            INSTANCE_SQUARES[instance] = new int[bases[instance].length];
+            for (int k = 0; k < bases[instance].length; ++k) {
+                int square = Symmetry.transformSquare(bases[instance][k], symmetries[instance]);
+                INSTANCE_SQUARES[instance][k] = square;
+                ++counts[square];
+            }
+        }
+        for (int square = 0; square < counts.length; ++square) {
+            SQUARE_INSTANCES[square] = new int[counts[square]];
+            SQUARE_POWERS[square] = new int[counts[square]];
+            counts[square] = 0;
+        }
+        for (int instance = 0; instance < INSTANCES; ++instance) {
+            int power = 1;
+            for (int square : INSTANCE_SQUARES[instance]) {
+                SQUARE_INSTANCES[square][counts[square]] = instance;
+                SQUARE_POWERS[square][counts[square]] = power;
+                ++counts[square];
+                power *= 3;
+            }
+        }
+    }
+
+    private Patterns() {
+    }
+
+    /**
+     * Computes the index of an instance from scratch.
+     * @param instance the instance.
+     * @param black the black chips.
+     * @param white the white chips.
+     * @return the base-3 index.
+     */
+    static int index(int instance, long black, long white) {
+        int index = 0;
+        int[] squares = INSTANCE_SQUARES[instance];
+        for (int k = squares.length - 1; k >= 0; --k) {
+            long b = Board.bit(squares[k]);
+            index = index * 3 + ((black & b) != 0 ? 1 : (white & b) != 0 ? 2 : 0);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+/**
+ * Checks Board move generation against the published Othello perft numbers
+ * and reports the speed in nodes per second.
+ * Usage: Perft [maxDepth]
+ */
+public class Perft {
+
+    /**
+     * Leaf counts from the start position for depths 1, 2, 3... (passes count as moves).
+     */
+    static final long[] EXPECTED = {
+            4L, 12L, 56L, 244L, 1_396L, 8_200L, 55_092L, 390_216L, 3_005_288L, 24_571_284L,
+            212_258_800L, 1_939_886_636L, 18_429_641_748L, 184_042_084_512L};
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+        boolean correct = true;
+        System.out.println("depth          nodes    expected       ms      nodes/sec");
+        for (int depth = 1; depth <= maxDepth; ++depth) {
+            var board = new Board();
+            long start = System.nanoTime();
+            long nodes = board.perft(depth, Board.BLACK_CHIP);
+            long nanos = Math.max(1, System.nanoTime() - start);
+            boolean known = depth <= EXPECTED.length;
+            String expected = known ? Long.toString(EXPECTED[depth - 1]) : "?";
+            if (known && nodes != EXPECTED[depth - 1]) {
+                correct = false;
+                expected += " MISMATCH";
+            }
+            System.out.printf("%5d %14d %11s %8d %14.0f%n", depth, nodes, expected, nanos / 1_000_000, nodes / (nanos / 1e9));
+        }
+        System.out.println(correct ? "All counts match." : "Move generation is wrong!");
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+/**
+ * Immutable position: the two bitboards and the color to move. Unlike a Board it can be queued, cached,
+ * used as a key and handed to another thread as it is, without a defensive copy.
+ * @param black the black chips.
+ * @param white the white chips.
+ * @param sideToMove the color of the player to move.
+ */
+record Position(long black, long white, char sideToMove) {
+
+    /**
+     * The start position.
+     */
+    static final Position START = new Position(
+            Board.bit(3 * Board.BOARD_SIZE + 4) | Board.bit(4 * Board.BOARD_SIZE + 3),
+            Board.bit(3 * Board.BOARD_SIZE + 3) | Board.bit(4 * Board.BOARD_SIZE + 4), Board.BLACK_CHIP);
+
+    /**
+     * Position constructor.
+     * @throws IllegalArgumentException if a square has two chips or the color is unknown.
+     */
+    Position {
+        if ((black & white) != 0) {
+            throw new IllegalArgumentException("A square can not hold two chips.");
+        }
+        if (sideToMove != Board.BLACK_CHIP && sideToMove != Board.WHITE_CHIP) {
+            throw new IllegalArgumentException("Unknown color '" + sideToMove + "'.");
+        }
+    }
+
+    /**
+     * Takes a snapshot of a board.
+     * @param board the board.
+     * @param sideToMove the color of the player to move.
+     * @return the position.
+     */
+    static Position of(Board board, char sideToMove) {
+        return new Position(board.chips(Board.BLACK_CHIP), board.chips(Board.WHITE_CHIP), sideToMove);
+    }
+
+    /**
+     * @return a new board with this position (and an empty undo stack).
+     */
+    Board toBoard() {
+        return new Board(black, white);
+    }
+
+    /**
+     * @param color the color of the chips.
+     * @return the bitboard of the chips of this color.
+     */
+    long chips(char color) {
+        return color == Board.BLACK_CHIP ? black : white;
+    }
+
+    /**
+     * @return the legal moves of the player to move as a mask.
+     */
+    long movesMask() {
+        return Board.generateMoves(chips(sideToMove), chips(Board.opponent(sideToMove)));
+    }
+
+    /**
+     * @return the amount of empty squares.
+     */
+    int empties() {
+        return Long.bitCount(~(black | white));
+    }
+
+    /**
+     * Plays a move of the player to move.
+     * @param square the square of the move or Board.PASS.
+     * @return the position after the move, with the opponent to move.
+     * @throws IllegalArgumentException if the move is not legal.
+     */
+    Position play(int square) {
+        char opponent = Board.opponent(sideToMove);
+        if (square == Board.PASS) {
+            return new Position(black, white, opponent);
+        }
+        if (square < 0 || square > Board.PASS || (movesMask() & Board.bit(square)) == 0) {
+            throw new IllegalArgumentException("The move " + square + " is not possible.");
+        }
+        long own = chips(sideToMove);
+        long opp = chips(opponent);
+        long flipped = Board.flips(own, opp, square);
+        own |= flipped | Board.bit(square);
+        opp &= ~flipped;
+        return sideToMove == Board.BLACK_CHIP ? new Position(own, opp, opponent) : new Position(opp, own, opponent);
+    }
+
+    /**
+     * Hash of the chips and the color to move, spread over all the bits.
+     * @return the hash.
+     */
+    @Override
+    public int hashCode() {
+        long h = Board.hash(black, white);
+        if (sideToMove == Board.WHITE_CHIP) {
+            h = ~h;
+        }
+        return (int) (h ^ h >>> 32);
+    }
+
+    /**
+     * @return the position line of BatchAnalyzer: 64 squares ('b', 'w' or '-') row by row,
+     * a space and the color to move.
+     */
+    @Override
+    public String toString() {
+        var sb = new StringBuilder(66);
+        for (int square = 0; square < Board.BOARD_SIZE * Board.BOARD_SIZE; ++square) {
+            long b = Board.bit(square);
+            sb.append((black & b) != 0 ? 'b' : (white & b) != 0 ? 'w' : '-');
+        }
+        return sb.append(' ').append(sideToMove).toString();
+    }
+}
@@ -1,6 +1,9 @@
 package org.example;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalInt;
 import java.util.Scanner;
 
 import static java.lang.Math.max;
@@ -9,44 +12,92 @@ import static java.lang.Math.max;
  * Reversi (othello) game class
  */
 public class Reversi {
-    private int mode;
-    private int bestScore = -1;
-    private Board board;
+    /**
+     * Opening book used by the bots if the file exists (built with OpeningBookBuilder).
+     */
+    static final Path BOOK_FILE = Path.of("reversi.book");
+
+    /**
+     * Finished games are appended to this game record file.
+     */
+    static final Path GAMES_FILE = Path.of("reversi.games");
 
-    char curPlayer = Board.BLACK_CHIP;
+    /**
+     * Results of all the sessions (see StatsStore).
+     */
+    static final Path STATS_FILE = Path.of("reversi.stats");
+
+    /**
+     * System property that turns on the search metrics: "console", "csv:fileName" or "jmx" (see MetricsSink).
+     */
+    static final String METRICS_PROPERTY = "reversi.metrics";
 
     /**
-     * Displays the start menu.
+     * Clock of the clever bot: time for the whole game and the maximal time of one move.
+     */
+    static final long BOT_GAME_MILLIS = 30_000;
+
+    static final long BOT_MOVE_MILLIS = 3_000;
+
+    /**
+     * Statistics keys of the modes.
+     */
+    private static final String[] MODE_NAMES = {"easy", "medium", "player"};
+
+    private int mode;
+    private final StatsStore stats = openStats();
+    private final Scanner in = new Scanner(System.in);
+    private GameSession session;
+    private IEvaluatable bot;
+    private SearchAI searchBot;
+    private OpeningBook book;
+    private long gameStart;
+
+    /**
+     * Runs the start menu and the games until the user exits.
      */
     void startMenu() {
-        System.out.println("""
-                \n
-                Hello! You are playing Reversi game.
-                If you want to play versus second player, type "player".
-                If you want to play versus computer, type "easy" or "medium"
-                If you want to see your best score, type "best\"""");
-        Scanner in = new Scanner(System.in);
-        String choice = in.nextLine();
-        while (!(choice.equals("player") || choice.equals("easy") || choice.equals("medium") || choice.equals("best"))) {
-            System.out.println("Wrong input. Please, try again.");
-            choice = in.nextLine();
-        }
-        switch (choice) {
-            case "player" -> {
-                mode = 2;
-                startPVP();
+        while (true) {
+            System.out.println("""
+                    \n
+                    Hello! You are playing Reversi game.
+                    If you want to play versus second player, type "player".
+                    If you want to play versus computer, type "easy" or "medium"
+                    If you want to see your best score, type "best\"""");
+            String choice = readLine();
+            while (!(choice == null || choice.equals("player") || choice.equals("easy") || choice.equals("medium")
+                    || choice.equals("best"))) {
+                System.out.println("Wrong input. Please, try again.");
+                choice = readLine();
             }
-            case "easy" -> {
-                mode = 0;
-                startEasy();
+            if (choice == null) {
+                closeStats();
+                return;
             }
-            case "medium" -> {
-                mode = 1;
-                startMedium();
+            switch (choice) {
+                case "player" -> {
+                    mode = 2;
+                    startPVP();
+                }
+                case "easy" -> {
+                    mode = 0;
+                    startEasy();
+                }
+                case "medium" -> {
+                    mode = 1;
+                    startMedium();
+                }
+                default -> {
+                    displayBest();
+                    continue;
+                }
             }
-            default -> {
-                displayBest();
-                startMenu();
+            System.out.println("If you want to play once more, press enter. If you want to exit, type \"exit\"");
+            choice = readLine();
+            if (choice == null || choice.equals("exit")) {
+                closeStats();
+                System.out.println("Goodbye!");
+                return;
             }
         }
     }
@@ -55,185 +106,254 @@ public class Reversi {
      * Starts the game versus an easy bot.
      */
     private void startEasy() {
-        board = new Board();
-        while (!this.gameOver()) {
-            int impossibleTurns = 0;
-            board.displayBoard();
-            System.out.println("It is your turn. Please, choose the cell you want to place your chip.");
-            try {
-                userTurn();
-            } catch (ReversiException ex) {
-                System.out.println(ex.getMessage());
-                ++impossibleTurns;
-            }
-            curPlayer = curPlayer == 'b' ? 'w' : 'b';
+        searchBot = null;
+        bot = withBook(new AI());
+        playGame();
+    }
+
+    /**
+     * Starts a game versus a clever bot (alpha-beta search).
+     */
+    private void startMedium() {
+        var engine = new SearchAI();
+        engine.setTimeManager(new TimeManager(BOT_GAME_MILLIS, BOT_MOVE_MILLIS));
+        String metrics = System.getProperty(METRICS_PROPERTY);
+        if (metrics != null) {
             try {
-                computerTurn();
-            } catch (ReversiException ex) {
+                engine.setMetricsSink(MetricsSink.of(metrics));
+            } catch (IllegalArgumentException ex) {
                 System.out.println(ex.getMessage());
-                ++impossibleTurns;
             }
-            if (impossibleTurns == 2) {
-                System.out.println("No possible moves for the both players!");
-                break;
-            }
-            curPlayer = curPlayer == 'b' ? 'w' : 'b';
         }
-        this.gameResults();
+        searchBot = engine;
+        bot = withBook(engine);
+        playGame();
     }
 
     /**
-     * Starts a game versus a clever bot (will be developed later..).
+     * Lets the bot play from the opening book if there is one.
+     * @param engine the bot.
+     * @return the bot that uses the book, or the same bot if there is no book.
      */
-    private void startMedium() {
-        System.out.println("The clever bot has fallen ill. Please, try this option later.");
-        startMenu();
+    private IEvaluatable withBook(IEvaluatable engine) {
+        if (book == null && Files.exists(BOOK_FILE)) {
+            try {
+                book = OpeningBook.open(BOOK_FILE);
+            } catch (IOException ex) {
+                System.out.println("The opening book can not be read: " + ex.getMessage());
+            }
+        }
+        return book == null ? engine : new BookAI(book, engine);
     }
 
     /**
      * Starts a player versus player game.
      */
     private void startPVP() {
-        board = new Board();
-        while (!this.gameOver()) {
-            int impossibleTurns = 0;
-            board.displayBoard();
-            System.out.println("It is the first Player's turn. Please, choose the cell you want to place your chip.");
-            try {
-                userTurn();
-            } catch (ReversiException ex) {
-                System.out.println(ex.getMessage());
-                ++impossibleTurns;
-            }
-            curPlayer = curPlayer == 'b' ? 'w' : 'b';
-            System.out.println("It is the second Player's turn. Please, choose the cell you want to place your chip.");
-            try {
-                userTurn();
-            } catch (ReversiException ex) {
-                System.out.println(ex.getMessage());
-                ++impossibleTurns;
-            }
-            if (impossibleTurns == 2) {
-                System.out.println("No possible moves for the both players!");
+        searchBot = null;
+        bot = null;
+        playGame();
+    }
+
+    /**
+     * Plays a game: the user is black, white is the bot or the second player.
+     */
+    private void playGame() {
+        session = new GameSession();
+        session.addListener(new ConsoleRenderer(System.out, bot != null));
+        gameStart = System.currentTimeMillis();
+        session.start();
+        while (!session.isOver()) {
+            if (bot != null && session.curPlayer() == Board.WHITE_CHIP) {
+                computerTurn();
+            } else if (!userTurn()) {
+                // The input has ended.
                 break;
             }
-            curPlayer = curPlayer == 'b' ? 'w' : 'b';
         }
-        this.gameResults();
+        gameResults();
     }
 
     /**
-     * Checks the state of the game.
-     * @return if the board is filled up.
+     * Implements User's turn: a move or the undo of his previous move.
+     * @return false, if there is no more input.
      */
-    private boolean gameOver() {
-        return board.isFull();
+    private boolean userTurn() {
+        MoveList moves = session.moves();
+        OptionalInt usersTurn = readUserTurn();
+        while (usersTurn.isPresent() && (usersTurn.getAsInt() < 0 || usersTurn.getAsInt() > moves.size())) {
+            System.out.println("Wrong input. Please, try again.");
+            usersTurn = readUserTurn();
+        }
+        if (usersTurn.isEmpty()) {
+            return false;
+        }
+        if (usersTurn.getAsInt() == 0) {
+            if (!session.undo(session.curPlayer())) {
+                System.out.print("\nYou have not made any move yet.\n");
+            }
+            return true;
+        }
+        try {
+            session.play(moves.square(usersTurn.getAsInt() - 1));
+        } catch (ReversiException ex) {
+            System.out.println(ex.getMessage());
+        }
+        return true;
     }
 
     /**
-     * Implements User's turn.
-     * @throws ReversiException no possible moves.
+     * Read user's choice from the console
+     * @return user's choice (-1 if it is not a number) or empty if there is no more input.
      */
-    private void userTurn() throws ReversiException {
-        ArrayList<Integer> moves = board.possibleMoves(curPlayer);
-        if (moves.isEmpty()) {
-            throw new ReversiException("No possible moves, the turn passes to the other player");
+    private OptionalInt readUserTurn() {
+        String line = readLine();
+        if (line == null) {
+            return OptionalInt.empty();
         }
-        board.displayBoard(moves);
-        displayMoves(moves);
-        int usersTurn = readUserTurn();
-
-        while (usersTurn < 1 || usersTurn > (moves.size() / 2)) {
-            usersTurn = readUserTurn();
+        try {
+            return OptionalInt.of(Integer.parseInt(line.trim()));
+        } catch (NumberFormatException ex) {
+            return OptionalInt.of(-1);
         }
-        int move = (usersTurn - 1) * 2;
-        board.changeCells(moves.get(move), moves.get(move + 1), curPlayer);
-        System.out.print("\nNow the board looks that way. It's the second player's turn!\n");
-        board.displayBoard();
     }
 
     /**
-     * Display the list of possible moves.
-     * @param moves the list of possible moves.
+     * @return the next line of the console or null if there is no more input.
+     */
+    private String readLine() {
+        return in.hasNextLine() ? in.nextLine() : null;
+    }
+
+    /**
+     * Implements Computer's turn.
      */
-    static void displayMoves(ArrayList<Integer> moves) {
-        System.out.printf("You have %d possible moves, they are presented bellow:", moves.size() / 2);
-        for (int i = 0; i < moves.size(); i += 2) {
-            System.out.printf("\n%d. %d %d", i / 2 + 1, moves.get(i) + 1, moves.get(i + 1) + 1);
+    private void computerTurn() {
+        char player = session.curPlayer();
+        int best = bot.bestMove(session.board(), player);
+        try {
+            session.play(best);
+        } catch (ReversiException ex) {
+            throw new IllegalStateException("The bot made an impossible move " + best, ex);
         }
+        ponder(best, player);
     }
 
     /**
-     * Read user's choice from the console
-     * @return user's choice.
+     * Lets the clever bot think on the user's expected reply while the user chooses a move.
+     * @param best the move the bot has just made.
+     * @param botPlayer the color of the bot.
      */
-    private Integer readUserTurn() {
-        System.out.print("\nMake your move, entering the number of the suitable move\n");
-        Scanner in = new Scanner(System.in);
-        return in.nextInt();
+    private void ponder(int best, char botPlayer) {
+        SearchReport report = searchBot == null ? null : searchBot.lastReport();
+        if (report == null || report.move != best || report.pv.length < 2 || session.curPlayer() == botPlayer) {
+            return;
+        }
+        char user = Board.opponent(botPlayer);
+        int reply = report.pv[1];
+        Board board = session.board();
+        if (reply == Board.PASS || (board.movesMask(user) & Board.bit(reply)) == 0) {
+            return;
+        }
+        var expected = new Board(board);
+        expected.makeMove(reply, user);
+        searchBot.ponder(expected, botPlayer);
     }
 
     /**
-     * Implements Computer's turn.
-     * @throws ReversiException
-     */
-    private void computerTurn() throws ReversiException {
-        ArrayList<Integer> moves = board.possibleMoves(curPlayer);
-        if (moves.isEmpty()) {
-            throw new ReversiException("No possible moves, the turn passes to the other player");
-        }
-        double[] values = new double[moves.size() / 2];
-        double maxx = -10e9;
-        int i;
-        for (i = 0; i < moves.size(); i += 2) {
-            double sum = AI.evaluate(moves.get(i), moves.get(i + 1), board, curPlayer);
-            values[i / 2] = sum;
-            maxx = max(maxx, sum);
-        }
-        for (i = 0; i < values.length; ++i) {
-            if (values[i] == maxx) {
-                break;
+     * Records the results of a finished game (the renderer has displayed them).
+     */
+    private void gameResults() {
+        if (searchBot != null) {
+            // A new engine is made for every game: let the threads of this one go.
+            searchBot.close();
+        }
+        if (!session.isOver()) {
+            return;
+        }
+        Board board = session.board();
+        saveGame();
+        try {
+            if (stats != null) {
+                stats.record(MODE_NAMES[mode], board.countChips(Board.BLACK_CHIP), board.countChips(Board.WHITE_CHIP));
             }
+        } catch (IOException ex) {
+            System.out.println("The statistics can not be saved: " + ex.getMessage());
         }
-        board.changeCells(moves.get(i * 2), moves.get(i * 2 + 1), curPlayer);
-        System.out.printf("\nThe computer made his move on the cell (%d, %d)\n",
-                moves.get(i * 2) + 1, moves.get(i * 2 + 1) + 1);
     }
 
     /**
-     * Displays the results of the game.
+     * Appends the finished game to the game record file.
      */
-    private void gameResults() {
-        System.out.println("The game is over.\n");
-        int white = board.countChips(Board.WHITE_CHIP);
-        int black = board.countChips(Board.BLACK_CHIP);
-        if (white > black) {
-            System.out.printf("The winner is white player. His score is %d.\n", white);
-        } else if (black > white) {
-            System.out.printf("The winner is black player. His score is %d.\n", black);
-        } else {
-            System.out.printf("The game has ended with a tie. The score of both players is %d.\n", white);
-        }
-        if (mode == 0)
-            bestScore = max(black, bestScore);
-        System.out.println("If you want to play once more, press enter. If you want to exit, type \"exit\"");
-        Scanner in = new Scanner(System.in);
-        String choice = in.nextLine();
-        if (choice.equals("exit")) {
-            System.out.println("Goodbye!");
-        } else {
-            startMenu();
+    private void saveGame() {
+        int whitePlayer = switch (mode) {
+            case 0 -> GameRecordReader.EASY_BOT;
+            case 1 -> GameRecordReader.MEDIUM_BOT;
+            default -> GameRecordReader.HUMAN;
+        };
+        try (var writer = new GameRecordWriter(GAMES_FILE)) {
+            writer.write(session.board(), GameRecordReader.HUMAN, whitePlayer, gameStart, System.currentTimeMillis());
+        } catch (IOException ex) {
+            System.out.println("The game can not be saved: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens the statistics store; its pending results are written when the program exits.
+     * @return the store or null if it can not be opened.
+     */
+    private StatsStore openStats() {
+        try {
+            var store = new StatsStore(STATS_FILE, 8);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close();
+                } catch (IOException ignored) {
+                    // The results of this session are lost, the log stays valid.
+                }
+            }));
+            return store;
+        } catch (IOException ex) {
+            System.out.println("The statistics can not be read: " + ex.getMessage());
+            return null;
         }
     }
 
     /**
-     * Displays the best score.
+     * Writes the pending results to the statistics store.
+     */
+    private void closeStats() {
+        try {
+            if (stats != null) {
+                stats.close();
+            }
+        } catch (IOException ex) {
+            System.out.println("The statistics can not be saved: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Displays the best score versus a computer and the results of every mode.
      */
     private void displayBest() {
+        int bestScore = -1;
+        if (stats != null) {
+            for (int m = 0; m < 2; ++m) {
+                StatsStore.Totals totals = stats.totals(MODE_NAMES[m]);
+                if (totals != null) {
+                    bestScore = max(bestScore, totals.bestScore);
+                }
+            }
+        }
         if (bestScore == -1) {
             System.out.println("You have not played versus a computer yet, so you best score is 0!");
         } else {
             System.out.printf("Congratulations! Your best score is %d.\n", bestScore);
         }
+        if (stats != null) {
+            for (String key : stats.keys()) {
+                System.out.printf("%s: %s\n", key, stats.totals(key));
+            }
+        }
     }
 }
@@ -0,0 +1,673 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clever bot: negamax with alpha-beta pruning and iterative deepening,
+ * limited by a time and a node budget per move.
+ * With several threads it runs a Lazy SMP search: helper threads search the same root
+ * on their own board copies and share the lock-free transposition table with the main thread.
+ */
+public class SearchAI implements IEvaluatable, AutoCloseable {
+
+    static final int INFINITY = 1_000_000;
+
+    /**
+     * Score of a won game before adding the final disc difference.
+     */
+    static final int WIN = 100_000;
+
+    /**
+     * Share of the move budget after which no new iteration is started.
+     */
+    private static final double SOFT_LIMIT = 0.5;
+
+    /**
+     * Limits are checked (and the shared node counter updated) once per this many nodes.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final long timeLimitMillis;
+
+    private final long nodeLimit;
+
+    private final int maxDepth;
+
+    private final int threads;
+
+    private final int endgameEmpties;
+
+    /**
+     * Exact solver of the last empties, or null if the engine never uses it.
+     */
+    private final EndgameSolver solver;
+
+    private final PatternEvaluator evaluator = PatternEvaluator.standard();
+
+    private final TranspositionTable table;
+
+    /**
+     * Move ordering of every thread (the main thread first); kept between moves for the history.
+     */
+    private final MoveOrdering[] orderings;
+
+    /**
+     * Daemon threads for the helper searchers, created on first use.
+     */
+    private ExecutorService helpers;
+
+    private final AtomicLong totalNodes = new AtomicLong();
+
+    private volatile long deadline;
+
+    /**
+     * No new iteration is started after this time: it would hardly finish before the deadline.
+     */
+    private volatile long softDeadline;
+
+    private volatile boolean aborted;
+
+    private int lastDepth;
+
+    private int lastScore;
+
+    /**
+     * Per-thread counters of the last search, summed when the threads finish.
+     */
+    private long lastTtProbes;
+
+    private long lastTtHits;
+
+    private boolean lastSolved;
+
+    private SearchReport lastReport;
+
+    private MetricsSink sink;
+
+    private TimeManager timeManager;
+
+    /**
+     * Thread of the background search during the opponent's turn, created on first use.
+     */
+    private ExecutorService ponderThread;
+
+    private Future<?> ponderResult;
+
+    /**
+     * Position of the background search (Zobrist key with the side to move), its start and its result.
+     */
+    private long ponderKey;
+
+    private long ponderStart;
+
+    private int ponderMove;
+
+    /**
+     * SearchAI constructor with the default budget (one second per move, one thread, exact play from 14 empties).
+     */
+    SearchAI() {
+        this(1000, Long.MAX_VALUE, 60, 16, 1, 14);
+    }
+
+    /**
+     * SearchAI constructor.
+     * @param timeLimitMillis the time budget per move in milliseconds.
+     * @param nodeLimit the node budget per move (all threads together).
+     * @param maxDepth the maximal depth of iterative deepening.
+     * @param ttSizeMb the memory of the transposition tables in megabytes, shared half and half with the endgame solver
+     * (at least 1 MB each).
+     * @param threads the amount of search threads.
+     * @param endgameEmpties the amount of empty squares from which on the exact endgame solver is used.
+     */
+    SearchAI(long timeLimitMillis, long nodeLimit, int maxDepth, int ttSizeMb, int threads, int endgameEmpties) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is required");
+        }
+        this.timeLimitMillis = timeLimitMillis;
+        this.nodeLimit = nodeLimit;
+        this.maxDepth = maxDepth;
+        this.threads = threads;
+        this.endgameEmpties = endgameEmpties;
+        int solverMb = endgameEmpties > 0 ? Math.max(1, ttSizeMb / 2) : 0;
+        this.table = new TranspositionTable(Math.max(1, ttSizeMb - solverMb));
+        this.solver = solverMb > 0 ? new EndgameSolver(solverMb) : null;
+        this.orderings = new MoveOrdering[threads];
+        for (int t = 0; t < threads; ++t) {
+            orderings[t] = new MoveOrdering();
+        }
+    }
+
+    /**
+     * Searches with increasing depth until the budget runs out and returns the best move of the last complete iteration.
+     * @param board the field on which the game is played.
+     * @param curPlayer the color of current player.
+     * @return the square index of the chosen move or Board.PASS.
+     */
+    @Override
+    public int bestMove(Board board, char curPlayer) {
+        if (board.movesMask(curPlayer) == 0) {
+            return Board.PASS;
+        }
+        long start = System.nanoTime();
+        int empties = board.countChips(Board.EMPTY_CELL);
+        long budget = timeManager == null ? timeLimitMillis : timeManager.allocate(empties);
+        int move = -1;
+        // Time of the search the report describes: the background search for a move answered from pondering.
+        long searchNanos = -1;
+        if (ponderResult != null) {
+            long ponderedMillis = stopPondering();
+            if (ponderKey == board.zobristKey(curPlayer)) {
+                // Ponder hit: the background search has already spent the time the move would get.
+                if (ponderedMillis >= budget * SOFT_LIMIT && lastDepth > 0) {
+                    move = ponderMove;
+                    searchNanos = System.nanoTime() - ponderStart;
+                } else {
+                    budget -= ponderedMillis;
+                }
+            }
+        }
+        if (move < 0) {
+            aborted = false;
+            move = search(board, curPlayer, budget);
+        }
+        long nanos = System.nanoTime() - start;
+        if (timeManager != null) {
+            timeManager.spend(nanos / 1_000_000);
+        }
+        long firstMoveCutoffs = 0;
+        for (MoveOrdering ordering : orderings) {
+            firstMoveCutoffs += ordering.firstMoveCutoffs();
+        }
+        int[] pv = lastSolved ? new int[]{move} : principalVariation(board, curPlayer, move, lastDepth);
+        long reportNanos = searchNanos < 0 ? nanos : searchNanos;
+        lastReport = new SearchReport(move, lastScore, lastDepth, lastSolved, nodes(), reportNanos,
+                lastTtProbes, lastTtHits, cutoffs(), firstMoveCutoffs, threads, pv);
+        if (sink != null) {
+            sink.report(lastReport);
+        }
+        return move;
+    }
+
+    /**
+     * Takes the budget of every move from the game clock instead of the fixed time limit.
+     * @param timeManager the clock of the game or null for the fixed time limit.
+     */
+    void setTimeManager(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    /**
+     * Starts searching in the background, while the opponent thinks, the position that is expected after his move.
+     * The search runs until the next bestMove or stopPondering; if bestMove gets the same position,
+     * it answers at once or continues with a filled transposition table.
+     * Endgame positions are not pondered: the solver is fast there.
+     * @param board the expected position (not changed).
+     * @param curPlayer the color of the bot (to move in the position).
+     */
+    void ponder(Board board, char curPlayer) {
+        stopPondering();
+        if (board.movesMask(curPlayer) == 0 || board.countChips(Board.EMPTY_CELL) <= endgameEmpties) {
+            return;
+        }
+        var copy = new Board(board);
+        ponderKey = copy.zobristKey(curPlayer);
+        ponderStart = System.nanoTime();
+        ponderMove = -1;
+        aborted = false;
+        ponderResult = ponderThread().submit(() -> {
+            ponderMove = search(copy, curPlayer, Long.MAX_VALUE / 4);
+        });
+    }
+
+    /**
+     * Stops the background search and waits for it.
+     * @return the time the background search has run in milliseconds, 0 if there was none.
+     */
+    long stopPondering() {
+        if (ponderResult == null) {
+            return 0;
+        }
+        aborted = true;
+        try {
+            ponderResult.get();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Background search failed", ex);
+        } finally {
+            ponderResult = null;
+        }
+        return ponderMove < 0 ? 0 : (System.nanoTime() - ponderStart) / 1_000_000;
+    }
+
+    /**
+     * @return the thread of the background search.
+     */
+    private synchronized ExecutorService ponderThread() {
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+                var thread = new Thread(runnable, "search-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return ponderThread;
+    }
+
+    /**
+     * Sends the metrics of every move to the sink.
+     * @param sink the sink or null for none.
+     */
+    void setMetricsSink(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the metrics of the last move or null if no move was searched.
+     */
+    SearchReport lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Runs the endgame solver or the iterative deepening search; the caller clears the aborted flag.
+     * @param board the field on which the game is played.
+     * @param curPlayer the color of current player (who has a move).
+     * @param budget the time of the move in milliseconds.
+     * @return the square index of the chosen move.
+     */
+    private int search(Board board, char curPlayer, long budget) {
+        totalNodes.set(0);
+        lastTtProbes = 0;
+        lastTtHits = 0;
+        lastSolved = false;
+        table.newSearch();
+        for (MoveOrdering ordering : orderings) {
+            ordering.newSearch();
+        }
+        long now = System.currentTimeMillis();
+        deadline = now + budget;
+        softDeadline = now + (long) (budget * SOFT_LIMIT);
+        int empties = board.countChips(Board.EMPTY_CELL);
+        if (solver != null && empties <= endgameEmpties) {
+            // The solver gets half of the budget; if it does not finish, the usual search takes the rest.
+            int move = solver.bestMove(board, curPlayer, budget / 2);
+            totalNodes.addAndGet(solver.nodes());
+            if (move >= 0) {
+                lastSolved = true;
+                lastDepth = empties;
+                lastScore = scoreOfDiff(solver.lastScore());
+                return move;
+            }
+        }
+        var searchers = new Searcher[threads];
+        var helperResults = new Future<?>[threads - 1];
+        for (int t = 1; t < threads; ++t) {
+            var helper = new Searcher(new Board(board), orderings[t]);
+            searchers[t] = helper;
+            // Odd helpers start one ply deeper, so the threads spread over different depths.
+            int startDepth = 1 + t % 2;
+            helperResults[t - 1] = helpers().submit(() -> helper.iterate(curPlayer, startDepth));
+        }
+        var main = new Searcher(board, orderings[0]);
+        searchers[0] = main;
+        main.iterate(curPlayer, 1);
+        aborted = true;
+        for (Future<?> result : helperResults) {
+            try {
+                result.get();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Helper search failed", ex);
+            }
+        }
+        for (Searcher searcher : searchers) {
+            lastTtProbes += searcher.ttProbes;
+            lastTtHits += searcher.ttHits;
+        }
+        lastDepth = main.completedDepth;
+        lastScore = main.score;
+        return main.move;
+    }
+
+    /**
+     * Follows the moves stored in the transposition table from the root.
+     * @param board the root position.
+     * @param curPlayer the color of the player to move.
+     * @param move the chosen move.
+     * @param maxLength the maximal length of the variation.
+     * @return the moves of the variation, Board.PASS for passes.
+     */
+    private int[] principalVariation(Board board, char curPlayer, int move, int maxLength) {
+        var copy = new Board(board);
+        int[] pv = new int[Math.max(1, maxLength)];
+        int length = 0;
+        char player = curPlayer;
+        while (length < pv.length) {
+            pv[length++] = move;
+            copy.makeMove(move, player);
+            player = Board.opponent(player);
+            long moves = copy.movesMask(player);
+            if (moves == 0) {
+                if (length == pv.length || copy.movesMask(Board.opponent(player)) == 0) {
+                    break;
+                }
+                move = Board.PASS;
+                continue;
+            }
+            long entry = table.probe(copy.zobristKey(player));
+            move = entry == 0 ? Board.PASS : TranspositionTable.move(entry);
+            if (move == Board.PASS || (moves & Board.bit(move)) == 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    /**
+     * @return the depth of the last complete iteration.
+     */
+    int lastDepth() {
+        return lastDepth;
+    }
+
+    /**
+     * @return the score of the last complete iteration from the point of view of the player to move.
+     */
+    int lastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return the amount of nodes searched by all threads for the last move.
+     */
+    long nodes() {
+        return totalNodes.get();
+    }
+
+    /**
+     * @return the amount of beta cutoffs of all threads for the last move.
+     */
+    long cutoffs() {
+        long cutoffs = 0;
+        for (MoveOrdering ordering : orderings) {
+            cutoffs += ordering.cutoffs();
+        }
+        return cutoffs;
+    }
+
+    /**
+     * @return the share of the beta cutoffs of the last move produced by the first move searched.
+     */
+    double firstMoveCutoffRate() {
+        long first = 0;
+        for (MoveOrdering ordering : orderings) {
+            first += ordering.firstMoveCutoffs();
+        }
+        long cutoffs = cutoffs();
+        return cutoffs == 0 ? 0 : (double) first / cutoffs;
+    }
+
+    /**
+     * @return the amount of search threads.
+     */
+    int threads() {
+        return threads;
+    }
+
+    /**
+     * Stops the background search and the helper threads. The engine can still be used:
+     * the threads are created again when they are needed.
+     */
+    @Override
+    public void close() {
+        stopPondering();
+        ExecutorService pool;
+        ExecutorService ponder;
+        synchronized (this) {
+            pool = helpers;
+            ponder = ponderThread;
+            helpers = null;
+            ponderThread = null;
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (ponder != null) {
+            ponder.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the pool of helper threads.
+     */
+    private synchronized ExecutorService helpers() {
+        if (helpers == null) {
+            helpers = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                var thread = new Thread(runnable, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return helpers;
+    }
+
+    /**
+     * Stops the search when the time or the node budget is exhausted.
+     * @param nodes the nodes searched by the calling thread since its last check.
+     */
+    private void checkLimits(long nodes) {
+        if (totalNodes.addAndGet(nodes) >= nodeLimit || System.currentTimeMillis() >= deadline) {
+            aborted = true;
+        }
+    }
+
+    /**
+     * Single-threaded searcher on its own board.
+     */
+    private final class Searcher {
+
+        private final Board board;
+
+        private final MoveOrdering ordering;
+
+        private long nodes;
+
+        private long ttProbes;
+
+        private long ttHits;
+
+        private int move = Board.PASS;
+
+        private int score;
+
+        private int completedDepth;
+
+        /**
+         * Searcher constructor.
+         * @param board the board to search on (not shared with other searchers).
+         * @param ordering the move ordering of the thread.
+         */
+        Searcher(Board board, MoveOrdering ordering) {
+            this.board = board;
+            this.ordering = ordering;
+        }
+
+        /**
+         * Iterative deepening until the search is aborted or the game end is reached.
+         * @param curPlayer the color of current player.
+         * @param startDepth the depth of the first iteration.
+         */
+        void iterate(char curPlayer, int startDepth) {
+            long moves = board.movesMask(curPlayer);
+            int best = Long.numberOfTrailingZeros(moves);
+            int empties = board.countChips(Board.EMPTY_CELL);
+            move = best;
+            for (int depth = startDepth; depth <= maxDepth; ++depth) {
+                best = searchRoot(curPlayer, depth, best);
+                if (aborted) {
+                    break;
+                }
+                move = best;
+                completedDepth = depth;
+                if (depth >= empties || Long.bitCount(moves) == 1 || System.currentTimeMillis() >= softDeadline) {
+                    break;
+                }
+            }
+            totalNodes.addAndGet(nodes);
+            nodes = 0;
+        }
+
+        /**
+         * Searches all the root moves, the best move of the previous iteration first.
+         * @param curPlayer the color of current player.
+         * @param depth the depth of the iteration.
+         * @param firstMove the move to search first.
+         * @return the best move found.
+         */
+        private int searchRoot(char curPlayer, int depth, int firstMove) {
+            long moves = board.movesMask(curPlayer) & ~Board.bit(firstMove);
+            int count = Long.bitCount(moves);
+            int[] ordered = ordering.order(board, curPlayer, moves, 0, depth);
+            int alpha = -INFINITY;
+            int best = firstMove;
+            for (int n = 0; n <= count; ++n) {
+                int square = n == 0 ? firstMove : ordered[n - 1];
+                board.makeMove(square, curPlayer);
+                int value = -negamax(Board.opponent(curPlayer), depth - 1, 1, -INFINITY, -alpha, false);
+                board.unmakeMove();
+                if (aborted) {
+                    return best;
+                }
+                if (value > alpha) {
+                    alpha = value;
+                    best = square;
+                }
+            }
+            score = alpha;
+            table.store(board.zobristKey(curPlayer), depth, TranspositionTable.EXACT, alpha, best);
+            return best;
+        }
+
+        /**
+         * Negamax search with alpha-beta pruning.
+         * @param player the color of the player to move.
+         * @param depth the remaining depth.
+         * @param ply the distance from the root.
+         * @param alpha the lower bound.
+         * @param beta the upper bound.
+         * @param passed true, if the previous move was a pass.
+         * @return the score from the point of view of the player to move.
+         */
+        private int negamax(char player, int depth, int ply, int alpha, int beta, boolean passed) {
+            if (++nodes == CHECK_INTERVAL) {
+                checkLimits(nodes);
+                nodes = 0;
+            }
+            if (aborted) {
+                return 0;
+            }
+            long moves = board.movesMask(player);
+            if (moves == 0) {
+                if (passed) {
+                    return finalScore(board, player);
+                }
+                board.makeMove(Board.PASS, player);
+                int value = -negamax(Board.opponent(player), depth, ply + 1, -beta, -alpha, true);
+                board.unmakeMove();
+                return value;
+            }
+            if (depth <= 0) {
+                return evaluator.evaluate(board, player);
+            }
+            long key = board.zobristKey(player);
+            long entry = table.probe(key);
+            ++ttProbes;
+            if (entry != 0) {
+                ++ttHits;
+            }
+            int ttMove = Board.PASS;
+            if (entry != 0) {
+                int move = TranspositionTable.move(entry);
+                if (move != Board.PASS && (moves & Board.bit(move)) != 0) {
+                    ttMove = move;
+                }
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int ttScore = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER && ttScore >= beta
+                            || bound == TranspositionTable.UPPER && ttScore <= alpha) {
+                        return ttScore;
+                    }
+                }
+            }
+            int alphaOrig = alpha;
+            int best = -INFINITY;
+            int bestMove = Board.PASS;
+            int count = Long.bitCount(moves);
+            // The hash move often cuts off alone, so the other moves are ordered only when they are needed.
+            int skip = ttMove == Board.PASS ? 0 : 1;
+            int[] ordered = null;
+            for (int n = 0; n < count; ++n) {
+                int square;
+                if (n < skip) {
+                    square = ttMove;
+                } else {
+                    if (ordered == null) {
+                        long rest = skip == 0 ? moves : moves & ~Board.bit(ttMove);
+                        ordered = ordering.order(board, player, rest, ply, depth);
+                    }
+                    square = ordered[n - skip];
+                }
+                board.makeMove(square, player);
+                int value = -negamax(Board.opponent(player), depth - 1, ply + 1, -beta, -alpha, false);
+                board.unmakeMove();
+                if (aborted) {
+                    return 0;
+                }
+                if (value > best) {
+                    best = value;
+                    bestMove = square;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            ordering.cutoff(player, square, ply, depth, n);
+                            break;
+                        }
+                    }
+                }
+            }
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, depth, bound, best, bestMove);
+            return best;
+        }
+    }
+
+    /**
+     * Scores a finished game.
+     * @param board the field on which the game is played.
+     * @param player the color of the player to move.
+     * @return WIN plus the disc difference for a win, minus that for a loss, 0 for a tie.
+     */
+    static int finalScore(Board board, char player) {
+        return scoreOfDiff(Long.bitCount(board.chips(player)) - Long.bitCount(board.chips(Board.opponent(player))));
+    }
+
+    /**
+     * Converts the final disc difference to the search score scale.
+     * @param diff the final disc difference.
+     * @return WIN plus the disc difference for a win, minus that for a loss, 0 for a tie.
+     */
+    static int scoreOfDiff(int diff) {
+        if (diff > 0) {
+            return WIN + diff;
+        }
+        if (diff < 0) {
+            return -WIN + diff;
+        }
+        return 0;
+    }
+}
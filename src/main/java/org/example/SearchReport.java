@@ -0,0 +1,129 @@
+package org.example;
+
+/**
+ * Metrics of the search of one move, collected by SearchAI and passed to its MetricsSink.
+ */
+final class SearchReport {
+
+    final int move;
+
+    final int score;
+
+    final int depth;
+
+    /**
+     * True if the endgame solver found the move (the score is exact).
+     */
+    final boolean solved;
+
+    final long nodes;
+
+    final long nanos;
+
+    final long ttProbes;
+
+    final long ttHits;
+
+    final long cutoffs;
+
+    final long firstMoveCutoffs;
+
+    final int threads;
+
+    /**
+     * Principal variation from the move on, Board.PASS for passes.
+     */
+    final int[] pv;
+
+    /**
+     * SearchReport constructor.
+     * @param move the chosen move.
+     * @param score the score from the point of view of the player to move.
+     * @param depth the depth of the last complete iteration (the empties if solved).
+     * @param solved true, if the endgame solver found the move.
+     * @param nodes the nodes of all threads.
+     * @param nanos the time of the search (for a move found while pondering, the time of the background search).
+     * @param ttProbes the transposition table probes of all threads.
+     * @param ttHits the probes that found an entry.
+     * @param cutoffs the beta cutoffs of all threads.
+     * @param firstMoveCutoffs the cutoffs produced by the first move searched.
+     * @param threads the amount of search threads.
+     * @param pv the principal variation.
+     */
+    SearchReport(int move, int score, int depth, boolean solved, long nodes, long nanos, long ttProbes, long ttHits,
+                 long cutoffs, long firstMoveCutoffs, int threads, int[] pv) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.solved = solved;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.ttProbes = ttProbes;
+        this.ttHits = ttHits;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.threads = threads;
+        this.pv = pv;
+    }
+
+    /**
+     * @return the nodes per second.
+     */
+    double nodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+    /**
+     * @return the time of the search in milliseconds.
+     */
+    double millis() {
+        return nanos / 1e6;
+    }
+
+    /**
+     * @return the share of the probes that found an entry.
+     */
+    double ttHitRate() {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    /**
+     * @return the share of the cutoffs produced by the first move searched.
+     */
+    double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * @return the principal variation in the usual notation (column letter and row number), space separated.
+     */
+    String pvString() {
+        var sb = new StringBuilder();
+        for (int square : pv) {
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            sb.append(squareName(square));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param square the square index or Board.PASS.
+     * @return the name of the square, for example "d3", or "pass".
+     */
+    static String squareName(int square) {
+        if (square == Board.PASS) {
+            return "pass";
+        }
+        return (char) ('a' + square % Board.BOARD_SIZE) + Integer.toString(square / Board.BOARD_SIZE + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("move %s, score %d, depth %d%s, %d nodes, %.0f nodes/sec, %.1f ms, "
+                        + "TT hits %.1f%%, %d cutoffs (%.1f%% by the first move), pv %s",
+                squareName(move), score, depth, solved ? " (solved)" : "", nodes, nodesPerSecond(), millis(),
+                100 * ttHitRate(), cutoffs, 100 * firstMoveCutoffRate(), pvString());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Reports nodes per second of SearchAI for an increasing amount of threads.
+ * Usage: SearchScaling [maxThreads] [millisPerPosition]
+ */
+public class SearchScaling {
+
+    private static final int POSITIONS = 8;
+
+    private static final int RANDOM_PLIES = 20;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        Board[] boards = new Board[POSITIONS];
+        char[] players = new char[POSITIONS];
+        var random = new SplittableRandom(POSITIONS);
+        for (int k = 0; k < POSITIONS; ++k) {
+            boards[k] = new Board();
+            players[k] = randomPlayout(boards[k], Board.BLACK_CHIP, RANDOM_PLIES, random);
+        }
+        double single = 0;
+        System.out.println("threads     nodes/sec   speedup");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long nodes = 0;
+            long start = System.nanoTime();
+            for (int k = 0; k < POSITIONS; ++k) {
+                try (var ai = new SearchAI(millis, Long.MAX_VALUE, 60, 64, threads, 0)) {
+                    ai.bestMove(boards[k], players[k]);
+                    nodes += ai.nodes();
+                }
+            }
+            double nps = nodes / ((System.nanoTime() - start) / 1e9);
+            if (threads == 1) {
+                single = nps;
+            }
+            System.out.printf("%7d %13.0f %9.2f%n", threads, nps, nps / single);
+        }
+    }
+
+    /**
+     * Plays random moves on the board.
+     * @param board the board to play on.
+     * @param player the color of the player to move.
+     * @param plies the amount of moves (passes included).
+     * @param random the source of randomness.
+     * @return the color of the player to move afterwards.
+     */
+    static char randomPlayout(Board board, char player, int plies, SplittableRandom random) {
+        for (int ply = 0; ply < plies; ++ply) {
+            long moves = board.movesMask(player);
+            if (moves != 0) {
+                for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; --skip) {
+                    moves &= moves - 1;
+                }
+                int square = Long.numberOfTrailingZeros(moves);
+                board.changeCells(square / Board.BOARD_SIZE, square % Board.BOARD_SIZE, player);
+            }
+            player = Board.opponent(player);
+        }
+        return player;
+    }
+}
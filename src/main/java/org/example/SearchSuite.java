@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Fixed-depth searches of a seeded suite of positions: nodes per depth and the cutoff statistics
+ * of the move ordering. Usage: SearchSuite [maxDepth] [positions]
+ */
+public class SearchSuite {
+
+    private static final long SEED = 17;
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        Board[] boards = new Board[positions];
+        char[] players = new char[positions];
+        var random = new SplittableRandom(SEED);
+        for (int k = 0; k < positions; ++k) {
+            do {
+                boards[k] = new Board();
+                // From the opening to the late midgame.
+                players[k] = SearchScaling.randomPlayout(boards[k], Board.BLACK_CHIP, 12 + 2 * (k % 20), random);
+            } while (boards[k].movesMask(players[k]) == 0);
+        }
+        System.out.println("depth         nodes       ms    cutoffs  first move");
+        for (int depth = 1; depth <= maxDepth; ++depth) {
+            long nodes = 0;
+            long cutoffs = 0;
+            double firstMoveCutoffs = 0;
+            long start = System.nanoTime();
+            for (int k = 0; k < positions; ++k) {
+                try (var ai = new SearchAI(Long.MAX_VALUE / 2, Long.MAX_VALUE, depth, 16, 1, 0)) {
+                    ai.bestMove(boards[k], players[k]);
+                    nodes += ai.nodes();
+                    cutoffs += ai.cutoffs();
+                    firstMoveCutoffs += ai.firstMoveCutoffRate() * ai.cutoffs();
+                }
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%5d %13d %8d %10d %10.1f%%%n", depth, nodes, millis, cutoffs,
+                    cutoffs == 0 ? 0.0 : 100 * firstMoveCutoffs / cutoffs);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent game statistics: an append-only log of game results and a small index with the totals.
+ * The index remembers how much of the log it covers, so opening the store reads the index
+ * and replays only the log records written after it. Results are appended in batches, each forced to disk;
+ * a torn record at the end of the log (a crash during an append) is cut off on opening.
+ * Log layout (big-endian): MAGIC, VERSION, then records: key length (byte), key (UTF-8),
+ * player score, opponent score (bytes), time in epoch milliseconds (long), CRC32 of the preceding record bytes (int).
+ */
+public class StatsStore implements Closeable {
+
+    static final int MAGIC = 0x52565354;
+
+    static final int INDEX_MAGIC = 0x52565349;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * Totals of one key (a mode or an engine).
+     */
+    static final class Totals {
+
+        int games;
+
+        int wins;
+
+        int draws;
+
+        int losses;
+
+        int bestScore;
+
+        long scoreSum;
+
+        /**
+         * Adds the result of one game.
+         * @param score the chips of the player.
+         * @param opponentScore the chips of the opponent.
+         */
+        void add(int score, int opponentScore) {
+            ++games;
+            if (score > opponentScore) {
+                ++wins;
+            } else if (score < opponentScore) {
+                ++losses;
+            } else {
+                ++draws;
+            }
+            bestScore = Math.max(bestScore, score);
+            scoreSum += score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %d wins, %d draws, %d losses, best score %d, average score %.1f",
+                    games, wins, draws, losses, bestScore, games == 0 ? 0.0 : (double) scoreSum / games);
+        }
+    }
+
+    private final Path indexPath;
+
+    private final FileChannel log;
+
+    private final int batchSize;
+
+    private final Map<String, Totals> totals = new TreeMap<>();
+
+    /**
+     * Records not yet written to the log and their amount.
+     */
+    private final ByteBuffer pending;
+
+    private int pendingCount;
+
+    /**
+     * Length of the log written and forced to disk.
+     */
+    private long logLength;
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * StatsStore constructor: opens (or creates) the log, loads the index and replays the rest of the log.
+     * @param path the log file; the index is stored next to it with the ".idx" suffix.
+     * @param batchSize the amount of results buffered before they are written.
+     * @throws IOException if the files can not be read or the log is not a statistics log.
+     */
+    StatsStore(Path path, int batchSize) throws IOException {
+        this.indexPath = path.resolveSibling(path.getFileName() + ".idx");
+        this.batchSize = batchSize;
+        this.pending = ByteBuffer.allocate(batchSize * (1 + 255 + 14));
+        log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (log.size() < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                log.truncate(0);
+                log.write(header, 0);
+                log.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                log.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Not a statistics log: " + path);
+                }
+            }
+            long covered = loadIndex();
+            replay(covered);
+            if (covered != logLength || !Files.exists(indexPath)) {
+                writeIndex();
+            }
+        } catch (IOException ex) {
+            log.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the index if it is valid for the log.
+     * @return the length of the log covered by the index (the header only if there is no index).
+     * @throws IOException if the log can not be read.
+     */
+    private long loadIndex() throws IOException {
+        if (Files.exists(indexPath)) {
+            try (var in = new DataInputStream(Files.newInputStream(indexPath))) {
+                if (in.readInt() == INDEX_MAGIC && in.readInt() == VERSION) {
+                    long covered = in.readLong();
+                    int count = in.readInt();
+                    var loaded = new TreeMap<String, Totals>();
+                    for (int k = 0; k < count; ++k) {
+                        var t = new Totals();
+                        String key = in.readUTF();
+                        t.games = in.readInt();
+                        t.wins = in.readInt();
+                        t.draws = in.readInt();
+                        t.losses = in.readInt();
+                        t.bestScore = in.readInt();
+                        t.scoreSum = in.readLong();
+                        loaded.put(key, t);
+                    }
+                    if (covered >= HEADER_BYTES && covered <= log.size()) {
+                        totals.putAll(loaded);
+                        return covered;
+                    }
+                }
+            } catch (IOException ex) {
+                // A damaged index is rebuilt from the log.
+                totals.clear();
+            }
+        }
+        return HEADER_BYTES;
+    }
+
+    /**
+     * Adds the log records from the offset to the totals and cuts off a torn record at the end.
+     * @param offset the offset of the first record to replay.
+     * @throws IOException if the log can not be read.
+     */
+    private void replay(long offset) throws IOException {
+        long size = log.size();
+        var buffer = ByteBuffer.allocate((int) Math.min(size - offset, Integer.MAX_VALUE - 8));
+        while (buffer.hasRemaining() && log.read(buffer, offset + buffer.position()) >= 0) {
+            // FileChannel.read may return fewer bytes than requested.
+        }
+        buffer.flip();
+        long valid = offset;
+        while (buffer.remaining() > 0) {
+            int start = buffer.position();
+            int keyLength = buffer.get(start) & 0xff;
+            int length = 1 + keyLength + 14;
+            if (buffer.remaining() < length) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), start, length - 4);
+            if ((int) crc.getValue() != buffer.getInt(start + length - 4)) {
+                break;
+            }
+            String key = new String(buffer.array(), start + 1, keyLength, StandardCharsets.UTF_8);
+            int score = buffer.get(start + 1 + keyLength);
+            int opponentScore = buffer.get(start + 2 + keyLength);
+            totals.computeIfAbsent(key, k -> new Totals()).add(score, opponentScore);
+            buffer.position(start + length);
+            valid += length;
+        }
+        if (valid < size) {
+            log.truncate(valid);
+            log.force(true);
+        }
+        logLength = valid;
+    }
+
+    /**
+     * Records the result of a game; it is written with its batch.
+     * @param key the mode or the engine the result belongs to (at most 255 bytes in UTF-8).
+     * @param score the chips of the player.
+     * @param opponentScore the chips of the opponent.
+     * @throws IOException if a full batch can not be written.
+     */
+    synchronized void record(String key, int score, int opponentScore) throws IOException {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("The statistics key is too long: " + key);
+        }
+        int start = pending.position();
+        pending.put((byte) bytes.length).put(bytes).put((byte) score).put((byte) opponentScore)
+                .putLong(System.currentTimeMillis());
+        crc.reset();
+        crc.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) crc.getValue());
+        totals.computeIfAbsent(key, k -> new Totals()).add(score, opponentScore);
+        if (++pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending results to the log, forces it to disk and updates the index.
+     * @throws IOException if the files can not be written.
+     */
+    synchronized void flush() throws IOException {
+        if (pendingCount == 0) {
+            return;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) {
+            logLength += log.write(pending, logLength);
+        }
+        log.force(false);
+        pending.clear();
+        pendingCount = 0;
+        writeIndex();
+    }
+
+    /**
+     * Replaces the index atomically.
+     * @throws IOException if the index can not be written.
+     */
+    private void writeIndex() throws IOException {
+        Path tmp = Files.createTempFile(indexPath.toAbsolutePath().getParent(), "stats", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logLength);
+            out.writeInt(totals.size());
+            for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+                Totals t = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(t.games);
+                out.writeInt(t.wins);
+                out.writeInt(t.draws);
+                out.writeInt(t.losses);
+                out.writeInt(t.bestScore);
+                out.writeLong(t.scoreSum);
+            }
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param key the mode or the engine.
+     * @return its totals, pending results included, or null if it has no games.
+     */
+    synchronized Totals totals(String key) {
+        return totals.get(key);
+    }
+
+    /**
+     * @return the keys that have games, in alphabetical order.
+     */
+    synchronized Iterable<String> keys() {
+        return new TreeMap<>(totals).keySet();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            log.close();
+        }
+    }
+}
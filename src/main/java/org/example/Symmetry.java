@@ -0,0 +1,143 @@
+package org.example;
+
+/**
+ * The 8 symmetries of the board on bitboards (square index i * 8 + j) and canonical position keys.
+ * A symmetry index is a combination of bit 0: transpose, bit 1: flip rows, bit 2: flip columns,
+ * applied in this order. The canonical form of a position is its smallest image,
+ * so symmetric positions share one key in caches, tables and books.
+ */
+final class Symmetry {
+
+    static final int COUNT = 8;
+
+    private Symmetry() {
+    }
+
+    /**
+     * Applies a symmetry to a bitboard.
+     * @param b the bitboard.
+     * @param symmetry the symmetry index.
+     * @return the image of the bitboard.
+     */
+    static long transform(long b, int symmetry) {
+        if ((symmetry & 1) != 0) {
+            b = transpose(b);
+        }
+        if ((symmetry & 2) != 0) {
+            b = Long.reverseBytes(b);
+        }
+        if ((symmetry & 4) != 0) {
+            b = mirrorColumns(b);
+        }
+        return b;
+    }
+
+    /**
+     * Swaps rows and columns: (i, j) goes to (j, i).
+     * @param b the bitboard.
+     * @return the transposed bitboard.
+     */
+    static long transpose(long b) {
+        long t = 0x0f0f0f0f00000000L & (b ^ (b << 28));
+        b ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (b ^ (b << 14));
+        b ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (b ^ (b << 7));
+        return b ^ t ^ (t >>> 7);
+    }
+
+    /**
+     * Mirrors every row: (i, j) goes to (i, 7 - j).
+     * @param b the bitboard.
+     * @return the mirrored bitboard.
+     */
+    static long mirrorColumns(long b) {
+        b = ((b >>> 1) & 0x5555555555555555L) | ((b & 0x5555555555555555L) << 1);
+        b = ((b >>> 2) & 0x3333333333333333L) | ((b & 0x3333333333333333L) << 2);
+        return ((b >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((b & 0x0f0f0f0f0f0f0f0fL) << 4);
+    }
+
+    /**
+     * Finds the symmetry that gives the smallest image of the position.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @return the symmetry index.
+     */
+    static int canonicalSymmetry(long own, long opp) {
+        // Images of the player's chips built incrementally: 1 transpose, 2 byte swaps and 4 mirrors.
+        long o1 = transpose(own);
+        long o2 = Long.reverseBytes(own);
+        long o3 = Long.reverseBytes(o1);
+        int best = 0;
+        long bestOwn = own;
+        long bestOpp = opp;
+        for (int symmetry = 1; symmetry < COUNT; ++symmetry) {
+            long o = switch (symmetry & 3) {
+                case 0 -> own;
+                case 1 -> o1;
+                case 2 -> o2;
+                default -> o3;
+            };
+            if (symmetry >= 4) {
+                o = mirrorColumns(o);
+            }
+            int cmp = Long.compareUnsigned(o, bestOwn);
+            if (cmp < 0) {
+                best = symmetry;
+                bestOwn = o;
+                bestOpp = -1;
+            } else if (cmp == 0) {
+                if (bestOpp == -1) {
+                    bestOpp = transform(opp, best);
+                }
+                long p = transform(opp, symmetry);
+                if (Long.compareUnsigned(p, bestOpp) < 0) {
+                    best = symmetry;
+                    bestOpp = p;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Key of the canonical form of the position: the same for all 8 symmetric images.
+     * @param own the chips of the player to move.
+     * @param opp the chips of the opponent.
+     * @return the 64-bit key.
+     */
+    static long canonicalKey(long own, long opp) {
+        int symmetry = canonicalSymmetry(own, opp);
+        return Board.hash(transform(own, symmetry), transform(opp, symmetry));
+    }
+
+    /**
+     * Applies a symmetry to a square.
+     * @param square the square index (i * 8 + j).
+     * @param symmetry the symmetry index.
+     * @return the image of the square.
+     */
+    static int transformSquare(int square, int symmetry) {
+        return Long.numberOfTrailingZeros(transform(Board.bit(square), symmetry));
+    }
+
+    /**
+     * Undoes a symmetry on a square.
+     * @param square the image of the square.
+     * @param symmetry the symmetry index.
+     * @return the original square.
+     */
+    static int inverseSquare(int square, int symmetry) {
+        long b = Board.bit(square);
+        if ((symmetry & 4) != 0) {
+            b = mirrorColumns(b);
+        }
+        if ((symmetry & 2) != 0) {
+            b = Long.reverseBytes(b);
+        }
+        if ((symmetry & 1) != 0) {
+            b = transpose(b);
+        }
+        return Long.numberOfTrailingZeros(b);
+    }
+}
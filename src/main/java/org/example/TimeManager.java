@@ -0,0 +1,65 @@
+package org.example;
+
+/**
+ * Clock of one game for a bot: a budget for the whole game, spent move by move.
+ * A move gets the remaining time divided by the moves the bot still has to make, weighted by the game phase:
+ * the midgame decides most games, the opening is covered by shallow searches and the book,
+ * and the last moves are solved exactly in little time.
+ */
+class TimeManager {
+
+    /**
+     * The time of a move is never less than this (the game budget can be overdrawn by it).
+     */
+    static final long MIN_MOVE_MILLIS = 10;
+
+    private final long maxMoveMillis;
+
+    private long remainingMillis;
+
+    /**
+     * TimeManager constructor.
+     * @param gameMillis the time of the bot for the whole game.
+     * @param maxMoveMillis the maximal time of one move.
+     */
+    TimeManager(long gameMillis, long maxMoveMillis) {
+        this.remainingMillis = gameMillis;
+        this.maxMoveMillis = maxMoveMillis;
+    }
+
+    /**
+     * Computes the budget of the next move.
+     * @param empties the amount of empty squares.
+     * @return the time of the move in milliseconds.
+     */
+    long allocate(int empties) {
+        // The bot makes about every second move; the last few moves take almost no time.
+        int movesLeft = Math.max(1, (empties - 8) / 2);
+        double phaseWeight;
+        if (empties > 44) {
+            phaseWeight = 0.6;
+        } else if (empties > 20) {
+            phaseWeight = 1.5;
+        } else {
+            phaseWeight = 1.0;
+        }
+        long share = (long) (remainingMillis * phaseWeight / movesLeft);
+        long budget = Math.min(share, Math.min(maxMoveMillis, remainingMillis / 2));
+        return Math.max(MIN_MOVE_MILLIS, budget);
+    }
+
+    /**
+     * Charges the time of a move.
+     * @param millis the time spent.
+     */
+    void spend(long millis) {
+        remainingMillis = Math.max(0, remainingMillis - millis);
+    }
+
+    /**
+     * @return the time left for the rest of the game.
+     */
+    long remainingMillis() {
+        return remainingMillis;
+    }
+}
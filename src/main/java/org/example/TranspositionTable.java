@@ -0,0 +1,151 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table of primitive long entries.
+ * Every entry is a key and a packed data word: score, depth, bound type, best move and age.
+ * The table is shared by the search threads without locks: the key is stored xor-ed with the data,
+ * so an entry torn by a concurrent write does not match any key and reads as a miss.
+ * A slot is replaced when it is empty, holds the same position, comes from an older search
+ * or was searched to a smaller depth.
+ */
+public class TranspositionTable {
+
+    static final int LOWER = 1;
+
+    static final int UPPER = 2;
+
+    static final int EXACT = 3;
+
+    /**
+     * Bytes per entry: the key and the data word.
+     */
+    private static final int ENTRY_BYTES = 16;
+
+    private static final int DEPTH_SHIFT = 32;
+
+    private static final int BOUND_SHIFT = 40;
+
+    private static final int MOVE_SHIFT = 42;
+
+    private static final int AGE_SHIFT = 49;
+
+    private final long[] keys;
+
+    private final long[] data;
+
+    private final int mask;
+
+    private int age;
+
+    /**
+     * TranspositionTable constructor.
+     * @param sizeMb the memory budget in megabytes, rounded down to a power-of-two number of entries.
+     */
+    TranspositionTable(int sizeMb) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("The transposition table needs at least 1 MB");
+        }
+        int entries = Integer.highestOneBit((int) Math.min(1L << 30, (long) sizeMb * 1024 * 1024 / ENTRY_BYTES));
+        keys = new long[entries];
+        data = new long[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Starts a new search: entries of the previous searches become replaceable.
+     */
+    void newSearch() {
+        age = (age + 1) & 0xff;
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Looks the position up.
+     * @param key the Zobrist key of the position.
+     * @return the packed data word or 0 if the position is not in the table.
+     */
+    long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Stores the result of a search.
+     * @param key the Zobrist key of the position.
+     * @param depth the searched depth.
+     * @param bound LOWER, UPPER or EXACT.
+     * @param score the score of the position.
+     * @param move the best move or Board.PASS.
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if (old != 0 && (keys[index] ^ old) != key && age(old) == age && depth(old) > depth) {
+            return;
+        }
+        long entry = (score & 0xffffffffL)
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) move << MOVE_SHIFT
+                | (long) age << AGE_SHIFT;
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    /**
+     * @return the amount of entries.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param entry the packed data word.
+     * @return the stored score.
+     */
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @param entry the packed data word.
+     * @return the searched depth.
+     */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xff;
+    }
+
+    /**
+     * @param entry the packed data word.
+     * @return the bound type (LOWER, UPPER or EXACT).
+     */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @param entry the packed data word.
+     * @return the best move or Board.PASS.
+     */
+    static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0x7f;
+    }
+
+    /**
+     * @param entry the packed data word.
+     * @return the age of the search that stored the entry.
+     */
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0xff;
+    }
+}
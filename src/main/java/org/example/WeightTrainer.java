@@ -0,0 +1,441 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline training of the PatternEvaluator weights from self-play games.
+ * Usage: WeightTrainer generate positionsFile [games] [engine] [threads]
+ * appends the positions of self-play games to the positions file;
+ * WeightTrainer import gamesFile positionsFile appends the positions of recorded games (see GameRecordReader);
+ * WeightTrainer train positionsFile weightsFile [epochs] [threads] [batchSize]
+ * fits the weights to the final disc differences by mini-batch gradient descent and writes the weights file.
+ * The positions file is streamed in batches, so its size does not depend on the heap.
+ * Positions file layout (big-endian): MAGIC, VERSION, then RECORD_BYTES per position:
+ * black chips, white chips (longs), final disc difference of the game (black minus white, byte).
+ */
+public class WeightTrainer {
+
+    static final int MAGIC = 0x52565450;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 8;
+
+    static final int RECORD_BYTES = 17;
+
+    /**
+     * Evaluation points per disc: weights are fitted in discs and saved in points.
+     */
+    static final float POINTS_PER_DISC = 10;
+
+    /**
+     * Damps the steps of the weights seen in few positions of a batch.
+     */
+    private static final int SMOOTHING = 10;
+
+    private final int threads;
+
+    private final float learningRate;
+
+    /**
+     * Weights in discs by phase, pattern type and index; mobility weights in discs.
+     */
+    private final float[][][] weights = new float[PatternEvaluator.PHASES][Patterns.TYPES][];
+
+    private final float[] mobility = new float[PatternEvaluator.PHASES];
+
+    /**
+     * The current batch.
+     */
+    private final long[] blacks;
+
+    private final long[] whites;
+
+    private final byte[] diffs;
+
+    private final byte[] buffer;
+
+    /**
+     * WeightTrainer constructor; the weights start at zero.
+     * @param threads the amount of threads computing the gradient.
+     * @param batchSize the amount of positions of one gradient step.
+     * @param learningRate the step size: a position sums Patterns.INSTANCES weights,
+     *                     so about 1 / Patterns.INSTANCES corrects the mean error of a batch in one step.
+     */
+    WeightTrainer(int threads, int batchSize, float learningRate) {
+        this.threads = threads;
+        this.learningRate = learningRate;
+        for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+            for (int type = 0; type < Patterns.TYPES; ++type) {
+                weights[phase][type] = new float[Patterns.TYPE_SIZE[type]];
+            }
+        }
+        blacks = new long[batchSize];
+        whites = new long[batchSize];
+        diffs = new byte[batchSize];
+        buffer = new byte[batchSize * RECORD_BYTES];
+    }
+
+    /**
+     * Gradient of one slice of the batch, accumulated in arrays owned by the worker.
+     */
+    private final class Worker implements Callable<Double> {
+
+        private final float[][][] errorSums = new float[PatternEvaluator.PHASES][Patterns.TYPES][];
+
+        private final int[][][] counts = new int[PatternEvaluator.PHASES][Patterns.TYPES][];
+
+        private final double[] mobilityErrors = new double[PatternEvaluator.PHASES];
+
+        private final double[] mobilitySquares = new double[PatternEvaluator.PHASES];
+
+        private final int[] indices = new int[Patterns.INSTANCES];
+
+        private int from;
+
+        private int to;
+
+        private Worker() {
+            for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+                for (int type = 0; type < Patterns.TYPES; ++type) {
+                    errorSums[phase][type] = new float[Patterns.TYPE_SIZE[type]];
+                    counts[phase][type] = new int[Patterns.TYPE_SIZE[type]];
+                }
+            }
+        }
+
+        /**
+         * Accumulates the errors of the positions from..to.
+         * @return the sum of the squared errors (discs squared).
+         */
+        @Override
+        public Double call() {
+            double squares = 0;
+            for (int k = from; k < to; ++k) {
+                long black = blacks[k];
+                long white = whites[k];
+                int phase = PatternEvaluator.phase(Long.bitCount(~(black | white)));
+                float[][] phaseWeights = weights[phase];
+                int mobilityDiff = Long.bitCount(Board.generateMoves(black, white))
+                        - Long.bitCount(Board.generateMoves(white, black));
+                float prediction = mobility[phase] * mobilityDiff;
+                for (int instance = 0; instance < Patterns.INSTANCES; ++instance) {
+                    indices[instance] = Patterns.index(instance, black, white);
+                    prediction += phaseWeights[Patterns.INSTANCE_TYPE[instance]][indices[instance]];
+                }
+                float error = diffs[k] - prediction;
+                squares += error * error;
+                for (int instance = 0; instance < Patterns.INSTANCES; ++instance) {
+                    int type = Patterns.INSTANCE_TYPE[instance];
+                    errorSums[phase][type][indices[instance]] += error;
+                    ++counts[phase][type][indices[instance]];
+                }
+                mobilityErrors[phase] += error * mobilityDiff;
+                mobilitySquares[phase] += mobilityDiff * mobilityDiff;
+            }
+            return squares;
+        }
+    }
+
+    /**
+     * Trains on every position of the file once.
+     * @param path the positions file.
+     * @param pool the threads of the workers.
+     * @param workers the workers, one per thread.
+     * @return the root mean square error of the epoch in discs (measured before each step).
+     * @throws IOException if the file can not be read.
+     */
+    private double epoch(Path path, ExecutorService pool, List<Worker> workers) throws IOException {
+        double squares = 0;
+        long positions = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            checkHeader(in, path);
+            int size;
+            while ((size = readBatch(in)) > 0) {
+                squares += step(size, pool, workers);
+                positions += size;
+            }
+        }
+        return Math.sqrt(squares / Math.max(1, positions));
+    }
+
+    /**
+     * Reads the next batch of positions.
+     * @param in the positions stream after the header.
+     * @return the amount of positions read, 0 at the end of the file.
+     * @throws IOException if the stream can not be read.
+     */
+    private int readBatch(InputStream in) throws IOException {
+        int bytes = in.readNBytes(buffer, 0, buffer.length);
+        int size = bytes / RECORD_BYTES;
+        var records = ByteBuffer.wrap(buffer);
+        for (int k = 0; k < size; ++k) {
+            int offset = k * RECORD_BYTES;
+            blacks[k] = records.getLong(offset);
+            whites[k] = records.getLong(offset + 8);
+            diffs[k] = records.get(offset + 16);
+        }
+        return size;
+    }
+
+    /**
+     * One gradient step: the workers accumulate their slices, then every weight moves by the mean error
+     * of the positions that used it, and the mobility weights by their least squares correction.
+     * @param size the amount of positions in the batch.
+     * @param pool the threads of the workers.
+     * @param workers the workers.
+     * @return the sum of the squared errors of the batch.
+     * @throws IOException if a worker failed.
+     */
+    private double step(int size, ExecutorService pool, List<Worker> workers) throws IOException {
+        int slice = (size + workers.size() - 1) / workers.size();
+        for (int k = 0; k < workers.size(); ++k) {
+            workers.get(k).from = Math.min(size, k * slice);
+            workers.get(k).to = Math.min(size, (k + 1) * slice);
+        }
+        double squares = 0;
+        try {
+            for (Future<Double> result : pool.invokeAll(workers)) {
+                squares += result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Training interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("A training worker failed", ex.getCause());
+        }
+        for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+            double mobilityErrors = 0;
+            double mobilitySquares = 0;
+            for (Worker worker : workers) {
+                mobilityErrors += worker.mobilityErrors[phase];
+                mobilitySquares += worker.mobilitySquares[phase];
+                worker.mobilityErrors[phase] = 0;
+                worker.mobilitySquares[phase] = 0;
+            }
+            if (mobilitySquares > 0) {
+                mobility[phase] += learningRate * (float) (mobilityErrors / mobilitySquares);
+            }
+            for (int type = 0; type < Patterns.TYPES; ++type) {
+                float[] typeWeights = weights[phase][type];
+                for (int index = 0; index < typeWeights.length; ++index) {
+                    float errorSum = 0;
+                    int count = 0;
+                    for (Worker worker : workers) {
+                        errorSum += worker.errorSums[phase][type][index];
+                        count += worker.counts[phase][type][index];
+                        worker.errorSums[phase][type][index] = 0;
+                        worker.counts[phase][type][index] = 0;
+                    }
+                    if (count > 0) {
+                        typeWeights[index] += learningRate * errorSum / (count + SMOOTHING);
+                    }
+                }
+            }
+        }
+        return squares;
+    }
+
+    /**
+     * Trains the weights.
+     * @param path the positions file.
+     * @param epochs the amount of passes over the file.
+     * @throws IOException if the file can not be read.
+     */
+    void train(Path path, int epochs) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        var workers = new ArrayList<Worker>();
+        for (int k = 0; k < threads; ++k) {
+            workers.add(new Worker());
+        }
+        try {
+            for (int epoch = 1; epoch <= epochs; ++epoch) {
+                long start = System.nanoTime();
+                double rmse = epoch(path, pool, workers);
+                System.out.printf("epoch %d: rms error %.2f discs, %.1f s%n", epoch, rmse, (System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the weights in the PatternEvaluator format; the file is replaced atomically.
+     * @param path the weights file.
+     * @throws IOException if the file can not be written.
+     */
+    void write(Path path) throws IOException {
+        var points = new float[PatternEvaluator.PHASES][Patterns.TYPES][];
+        var mobilityPoints = new float[PatternEvaluator.PHASES];
+        for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+            mobilityPoints[phase] = mobility[phase] * POINTS_PER_DISC;
+            for (int type = 0; type < Patterns.TYPES; ++type) {
+                points[phase][type] = weights[phase][type].clone();
+                for (int index = 0; index < points[phase][type].length; ++index) {
+                    points[phase][type][index] *= POINTS_PER_DISC;
+                }
+            }
+        }
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), "weights", ".tmp");
+        PatternEvaluator.save(tmp, points, mobilityPoints);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks the header of a positions file.
+     * @param in the positions stream.
+     * @param path the file (for the message).
+     * @throws IOException if the stream is not a positions file.
+     */
+    private static void checkHeader(InputStream in, Path path) throws IOException {
+        var header = ByteBuffer.wrap(in.readNBytes(HEADER_BYTES));
+        if (header.limit() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a positions file: " + path);
+        }
+    }
+
+    /**
+     * Plays self-play games and appends their positions to the positions file.
+     * @param path the positions file (created if it does not exist).
+     * @param games the amount of games.
+     * @param engine the engine playing both colors.
+     * @param threads the amount of games played at the same time.
+     * @return the amount of positions written.
+     * @throws IOException if the file can not be written.
+     */
+    static long generate(Path path, int games, String engine, int threads) throws IOException {
+        var local = ThreadLocal.withInitial(MatchRunner.engine(engine));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long positions = 0;
+        try (DataOutputStream out = openPositions(path)) {
+            long seed = System.nanoTime();
+            // Games are written in the order they finish; at most a window of them is in flight,
+            // so the heap does not grow with the amount of games.
+            var results = new ExecutorCompletionService<Board>(pool);
+            int window = threads * 2;
+            int submitted = 0;
+            for (int written = 0; written < games; ++written) {
+                while (submitted < games && submitted - written < window) {
+                    long gameSeed = seed + submitted++;
+                    results.submit(() -> {
+                        var board = new Board();
+                        MatchRunner.playGame(board, local.get(), local.get(), 6, new SplittableRandom(gameSeed));
+                        return board;
+                    });
+                }
+                positions += writePositions(out, results.take().get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("A game failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return positions;
+    }
+
+    /**
+     * Appends the positions of the games of a game record file to the positions file.
+     * @param games the game record file.
+     * @param path the positions file (created if it does not exist).
+     * @return the amount of positions written.
+     * @throws IOException if a file can not be read or written.
+     */
+    static long importGames(Path games, Path path) throws IOException {
+        long positions = 0;
+        try (var reader = new GameRecordReader(games); DataOutputStream out = openPositions(path)) {
+            while (reader.next()) {
+                var board = new Board();
+                reader.replay(board, reader.moveCount());
+                positions += writePositions(out, board);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Opens the positions file for appending, writes the header if it is new.
+     * @param path the positions file.
+     * @return the positions stream.
+     * @throws IOException if the file can not be opened.
+     */
+    private static DataOutputStream openPositions(Path path) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        var out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the positions of a finished game: the position before every move that is not a pass.
+     * @param out the positions stream.
+     * @param board the board with the moves of the game in its undo stack (from the start position).
+     * @return the amount of positions written.
+     * @throws IOException if the stream can not be written.
+     */
+    private static int writePositions(DataOutputStream out, Board board) throws IOException {
+        int diff = board.countChips(Board.BLACK_CHIP) - board.countChips(Board.WHITE_CHIP);
+        var replay = new Board();
+        int positions = 0;
+        for (int k = 0; k < board.movesMade(); ++k) {
+            if (board.moveAt(k) != Board.PASS) {
+                out.writeLong(replay.chips(Board.BLACK_CHIP));
+                out.writeLong(replay.chips(Board.WHITE_CHIP));
+                out.writeByte(diff);
+                ++positions;
+            }
+            replay.makeMove(board.moveAt(k), board.playerAt(k));
+        }
+        return positions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (args.length >= 2 && args[0].equals("generate")) {
+            int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+            String engine = args.length > 3 ? args[3] : "search:20";
+            int threads = args.length > 4 ? Integer.parseInt(args[4]) : cores;
+            long positions = generate(Path.of(args[1]), games, engine, threads);
+            System.out.printf("%d positions added to %s.%n", positions, args[1]);
+        } else if (args.length >= 3 && args[0].equals("import")) {
+            long positions = importGames(Path.of(args[1]), Path.of(args[2]));
+            System.out.printf("%d positions added to %s.%n", positions, args[2]);
+        } else if (args.length >= 3 && args[0].equals("train")) {
+            int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            int threads = args.length > 4 ? Integer.parseInt(args[4]) : cores;
+            int batchSize = args.length > 5 ? Integer.parseInt(args[5]) : 1 << 16;
+            var trainer = new WeightTrainer(threads, batchSize, 1f / Patterns.INSTANCES);
+            trainer.train(Path.of(args[1]), epochs);
+            trainer.write(Path.of(args[2]));
+            System.out.printf("The weights are written to %s.%n", args[2]);
+        } else {
+            System.out.println("Usage: WeightTrainer generate positionsFile [games] [engine] [threads]");
+            System.out.println("       WeightTrainer import gamesFile positionsFile");
+            System.out.println("       WeightTrainer train positionsFile weightsFile [epochs] [threads] [batchSize]");
+        }
+    }
+}